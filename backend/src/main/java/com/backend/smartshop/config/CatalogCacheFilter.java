@@ -0,0 +1,103 @@
+package com.backend.smartshop.config;
+
+import com.backend.smartshop.service.CatalogSnapshotService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Conditional GET for the public catalog endpoints. Every product, category and brand write
+ * bumps the catalog version, so an ETag derived from it is valid for all catalog responses and
+ * a matching If-None-Match can be answered with 304 before any controller runs. The ETag is weak:
+ * product details are sent either plain or gzipped from the same version, and the two bodies are
+ * equivalent but not byte-identical.
+ * Stock refreshes from checkout advance the stock version, which is part of the ETag of every
+ * catalog response: lists and details show stock, and suggestions rank by units sold.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogCacheFilter extends OncePerRequestFilter {
+
+    private static final List<String> CATALOG_PATHS = List.of("/api/products", "/api/categories", "/api/brands");
+
+    private final CatalogSnapshotService catalog;
+
+    @Value("${application.catalog.http-cache.max-age:60}")
+    private long maxAge;
+
+    @Value("${application.catalog.http-cache.shared-max-age:300}")
+    private long sharedMaxAge;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return CATALOG_PATHS.stream().noneMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                "public, max-age=" + maxAge + ", s-maxage=" + sharedMaxAge + ", must-revalidate");
+        // The CORS filter has already added Vary: Origin
+        response.addHeader(HttpHeaders.VARY, "Accept-Encoding");
+
+        String etag = "W/" + catalog.etag();
+        // Sets the ETag header and, on a (weak) match, the 304 status
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+        filterChain.doFilter(request, new CatalogResponse(response));
+    }
+
+    // Error responses (unknown id, bad cursor) must not be stored with the catalog's freshness
+    private static final class CatalogResponse extends HttpServletResponseWrapper {
+
+        CatalogResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            markUncacheableOnError(sc);
+            super.setStatus(sc);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            markUncacheableOnError(sc);
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            markUncacheableOnError(sc);
+            super.sendError(sc, msg);
+        }
+
+        private void markUncacheableOnError(int sc) {
+            if (sc >= 400) {
+                setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.backend.smartshop.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Small read-only connection pools for long streamed exports, kept apart from the checkout pool
+ * so a slow download never holds one of its connections. Auto-commit is off so PostgreSQL honours
+ * the fetch size with a server-side cursor. The pools are not Spring {@code DataSource} beans, so
+ * they do not replace the main one; each owner closes its pool on shutdown.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadOnlyPoolFactory {
+
+    private final DataSourceProperties properties;
+
+    // jdbcUrl may point at a replica; blank means the primary database
+    public HikariDataSource create(String poolName, String jdbcUrl, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(jdbcUrl == null || jdbcUrl.isBlank() ? properties.determineUrl() : jdbcUrl);
+        config.setUsername(properties.determineUsername());
+        config.setPassword(properties.determinePassword());
+        config.setDriverClassName(properties.determineDriverClassName());
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(0);
+        config.setReadOnly(true);
+        config.setAutoCommit(false);
+        // An unreachable database fails exports, not application startup
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,19 @@
+package com.backend.smartshop.config;
+
+import com.backend.smartshop.repository.SalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+// Runs once the schema exists, before the application takes traffic
+@Component
+@RequiredArgsConstructor
+public class RollupSlotMigration implements CommandLineRunner {
+
+    private final SalesRollupRepository rollupRepository;
+
+    @Override
+    public void run(String... args) {
+        rollupRepository.dropUnslottedKeys();
+    }
+}
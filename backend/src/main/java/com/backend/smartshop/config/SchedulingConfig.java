@@ -0,0 +1,82 @@
+package com.backend.smartshop.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+
+/**
+ * Background work. Periodic jobs are {@code @Scheduled} methods of the services that own them and
+ * run on Spring's task scheduler ({@code spring.task.scheduling.*}). Work handed off by request
+ * threads runs on the named pools below, sized by their owners' properties. Everything is shut
+ * down with the application context.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    // EmailOutbox claims only as many messages as this queue can take
+    @Bean
+    public ThreadPoolTaskExecutor emailOutboxExecutor(ThreadPoolTaskExecutorBuilder builder,
+                                                      @Value("${application.outbox.workers:2}") int workers,
+                                                      @Value("${application.outbox.queue-capacity:100}") int queueCapacity) {
+        return builder
+                .corePoolSize(workers)
+                .maxPoolSize(workers)
+                .queueCapacity(queueCapacity)
+                .threadNamePrefix("email-outbox-")
+                // Anything not sent in time keeps its lease and is picked up again after a restart
+                .awaitTermination(true)
+                .awaitTerminationPeriod(Duration.ofSeconds(10))
+                .build();
+    }
+
+    // The bulkhead of PaymentGatewayGuard: calls beyond the threads and queue are rejected at once
+    @Bean
+    public ThreadPoolTaskExecutor paymentGatewayExecutor(ThreadPoolTaskExecutorBuilder builder,
+                                                         @Value("${application.payments.bulkhead.threads:16}") int threads,
+                                                         @Value("${application.payments.bulkhead.queue-capacity:32}") int queueCapacity) {
+        return builder
+                .corePoolSize(threads)
+                .maxPoolSize(threads)
+                .queueCapacity(queueCapacity)
+                .threadNamePrefix("payment-gateway-")
+                .build();
+    }
+
+    // Runs the one long-lived loop of OrderStatusHub
+    @Bean
+    public ThreadPoolTaskExecutor orderStatusExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return singleThread(builder, "order-status-broadcast-");
+    }
+
+    // Recomputes related products off the thread that published the catalog change
+    @Bean
+    public ThreadPoolTaskExecutor relatedProductsExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return singleThread(builder, "related-products-");
+    }
+
+    // Settles simulated payments and posts their webhooks, which block on HTTP
+    @Bean
+    @ConditionalOnProperty(name = "application.payments.gateway", havingValue = "simulator")
+    public ThreadPoolTaskExecutor paymentSimulatorExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder
+                .corePoolSize(2)
+                .maxPoolSize(2)
+                .threadNamePrefix("payment-simulator-")
+                .build();
+    }
+
+    private static ThreadPoolTaskExecutor singleThread(ThreadPoolTaskExecutorBuilder builder, String threadNamePrefix) {
+        return builder
+                .corePoolSize(1)
+                .maxPoolSize(1)
+                .threadNamePrefix(threadNamePrefix)
+                .build();
+    }
+}
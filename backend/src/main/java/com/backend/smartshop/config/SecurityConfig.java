@@ -1,5 +1,7 @@
 package com.backend.smartshop.config;
 
+import com.backend.smartshop.domain.Role;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -42,14 +44,19 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
                        .authorizeHttpRequests(auth -> auth
+                               // Async (SSE, streamed reports) and error dispatches carry no JWT of their own;
+                               // the request that started them has already been authorized
+                               .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                                .requestMatchers("/api/auth/**").permitAll()
                                .requestMatchers("/api/products/**").permitAll()
                                .requestMatchers("/api/categories/**").permitAll()
                                .requestMatchers("/api/brands/**").permitAll()
+                               .requestMatchers("/api/cart/**").permitAll()
                                .requestMatchers("/api/payments/webhook").permitAll()
                                .requestMatchers("/api/payments/create-payment-intent").permitAll()
                                .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                                .requestMatchers(request -> "OPTIONS".equals(request.getMethod())).permitAll()
+                               .requestMatchers("/api/admin/**").hasAuthority(Role.ADMIN.name())
                                .anyRequest().authenticated()
                        )
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -78,8 +85,8 @@ public class SecurityConfig {
         
         configuration.setAllowedOrigins(origins);
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin", "If-None-Match", "Idempotency-Key"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "ETag"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
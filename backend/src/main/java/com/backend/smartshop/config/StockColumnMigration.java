@@ -0,0 +1,24 @@
+package com.backend.smartshop.config;
+
+import com.backend.smartshop.repository.ProductStockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+// Runs once the schema exists, before the application takes traffic
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockColumnMigration implements CommandLineRunner {
+
+    private final ProductStockRepository stockRepository;
+
+    @Override
+    public void run(String... args) {
+        int updated = stockRepository.requireStock();
+        if (updated > 0) {
+            log.info("Set stock to 0 for {} products that had none", updated);
+        }
+    }
+}
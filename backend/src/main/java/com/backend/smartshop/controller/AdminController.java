@@ -0,0 +1,74 @@
+package com.backend.smartshop.controller;
+
+import com.backend.smartshop.dto.OrderReportFormat;
+import com.backend.smartshop.dto.OrderReportQuery;
+import com.backend.smartshop.dto.PaymentGatewayStats;
+import com.backend.smartshop.dto.ReconciliationReport;
+import com.backend.smartshop.dto.SalesStats;
+import com.backend.smartshop.service.OrderReportService;
+import com.backend.smartshop.service.PaymentGatewayGuard;
+import com.backend.smartshop.service.PaymentReconciliationService;
+import com.backend.smartshop.service.SalesStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final OrderReportService reportService;
+    private final SalesStatsService salesStats;
+    private final PaymentGatewayGuard gatewayGuard;
+    private final PaymentReconciliationService reconciliation;
+
+    @GetMapping("/reports/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(OrderReportQuery query) {
+        OrderReportFormat format = OrderReportFormat.from(query.getFormat());
+        reportService.validate(query);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"smartshop-orders." + format.getExtension() + "\"")
+                .body(out -> reportService.writeReport(query, format, out));
+    }
+
+    @GetMapping("/stats/sales")
+    public ResponseEntity<SalesStats> getSalesStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(salesStats.getStats(from, to));
+    }
+
+    @GetMapping("/stats/sales/today")
+    public ResponseEntity<SalesStats> getTodaySalesStats() {
+        return ResponseEntity.ok(salesStats.getToday());
+    }
+
+    @GetMapping("/stats/payments")
+    public ResponseEntity<PaymentGatewayStats> getPaymentGatewayStats() {
+        return ResponseEntity.ok(gatewayGuard.getStats());
+    }
+
+    @GetMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> getReconciliationReport() {
+        return reconciliation.getLastReport()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    // Runs in the background; the report is available from GET once the run finishes
+    @PostMapping("/reconciliation")
+    public ResponseEntity<Void> startReconciliation() {
+        return reconciliation.trigger()
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.backend.smartshop.controller;
+
+import com.backend.smartshop.dto.CartQuote;
+import com.backend.smartshop.dto.CartQuoteRequest;
+import com.backend.smartshop.service.PricingEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/cart")
+@RequiredArgsConstructor
+public class CartController {
+
+    private final PricingEngine pricingEngine;
+
+    @PostMapping("/quote")
+    public ResponseEntity<CartQuote> quote(@RequestBody CartQuoteRequest request) {
+        return ResponseEntity.ok(pricingEngine.quote(request));
+    }
+}
@@ -2,14 +2,17 @@ package com.backend.smartshop.controller;
 
 import com.backend.smartshop.dto.OrderRequest;
 import com.backend.smartshop.dto.OrderResponse;
+import com.backend.smartshop.dto.OrderSummaryPage;
+import com.backend.smartshop.service.IdempotencyService;
 import com.backend.smartshop.service.OrderService;
+import com.backend.smartshop.service.OrderStatusHub;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -17,18 +20,27 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService service;
+    private final IdempotencyService idempotencyService;
+    private final OrderStatusHub statusHub;
 
     @GetMapping
-    public ResponseEntity<List<?>> getMyOrders(@AuthenticationPrincipal UserDetails userDetails) {
-        return ResponseEntity.ok(service.getOrdersByUser(userDetails.getUsername()));
+    public ResponseEntity<OrderSummaryPage> getMyOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        return ResponseEntity.ok(service.getOrderSummaries(userDetails.getUsername(), cursor, size));
     }
 
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             @RequestBody OrderRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails
     ) {
-        return ResponseEntity.ok(service.createOrder(request, userDetails.getUsername()));
+        String email = userDetails.getUsername();
+        return ResponseEntity.ok(idempotencyService.execute("orders", email, idempotencyKey, request,
+                OrderResponse.class, () -> service.createOrder(request, email)));
     }
 
     @GetMapping("/{id}")
@@ -46,4 +58,13 @@ public class OrderController {
     ) {
         return ResponseEntity.ok(service.getOrderByCode(orderCode, userDetails.getUsername()));
     }
+
+    // Pushes the current status, then every change, instead of the client polling /code/{orderCode}
+    @GetMapping(value = "/code/{orderCode}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderStatus(
+            @PathVariable String orderCode,
+            @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        return statusHub.subscribe(orderCode, userDetails.getUsername());
+    }
 }
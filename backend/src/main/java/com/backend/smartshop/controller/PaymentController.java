@@ -2,10 +2,17 @@ package com.backend.smartshop.controller;
 
 import com.backend.smartshop.dto.PaymentIntentRequest;
 import com.backend.smartshop.dto.PaymentIntentResponse;
+import com.backend.smartshop.exception.IdempotencyConflictException;
+import com.backend.smartshop.exception.PaymentGatewayException;
+import com.backend.smartshop.service.IdempotencyService;
 import com.backend.smartshop.service.StripeService;
-import com.stripe.exception.StripeException;
+import com.backend.smartshop.service.StripeWebhookService;
+import com.stripe.exception.SignatureVerificationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -14,38 +21,62 @@ import org.springframework.web.bind.annotation.*;
 public class PaymentController {
 
     private final StripeService stripeService;
+    private final IdempotencyService idempotencyService;
+    private final StripeWebhookService webhookService;
 
     @PostMapping("/create-payment-intent")
     public ResponseEntity<?> createPaymentIntent(
-            @RequestBody PaymentIntentRequest request) {
+            @RequestBody PaymentIntentRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetails userDetails) {
         try {
-            PaymentIntentResponse response = stripeService.createPaymentIntent(request);
+            // The endpoint is public, so anonymous keys share one namespace
+            String owner = userDetails != null ? userDetails.getUsername() : null;
+            PaymentIntentResponse response = idempotencyService.execute("payment-intents", owner, idempotencyKey,
+                    request, PaymentIntentResponse.class, () -> stripeService.createPaymentIntent(request));
             return ResponseEntity.ok(response);
-        } catch (StripeException e) {
-            return ResponseEntity.badRequest()
-                    .body(java.util.Map.of("message", "Eroare Stripe: " + e.getMessage()));
+        } catch (PaymentGatewayException e) {
+            // 503 when the provider is down, slow or overloaded, so the client knows to retry
+            return ResponseEntity.status(e.isUnavailable() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_REQUEST)
+                    .body(java.util.Map.of("message", "Eroare plată: " + e.getMessage()));
+        } catch (IdempotencyConflictException e) {
+            // 409 tells the client to retry later, unlike the 400 below
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(java.util.Map.of("message", "Eroare: " + e.getMessage()));
         }
     }
 
+    // Acknowledged as soon as the event is stored; processing happens in StripeWebhookService
     @PostMapping("/webhook")
     public ResponseEntity<String> handleStripeWebhook(
             @RequestBody String payload,
-            @RequestHeader("Stripe-Signature") String sigHeader) {
-        return ResponseEntity.ok("Received");
+            @RequestHeader(value = "Stripe-Signature", required = false) String sigHeader) {
+        if (!webhookService.isConfigured()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Webhook secret not configured");
+        }
+        try {
+            return ResponseEntity.ok(webhookService.receive(payload, sigHeader).name());
+        } catch (SignatureVerificationException e) {
+            return ResponseEntity.badRequest().body("Invalid signature");
+        }
     }
 
+    // With webhooks configured the webhook confirms the order, so these skip the Stripe round trip
     @PostMapping("/success")
     public ResponseEntity<Void> handlePaymentSuccess(@RequestParam String paymentIntentId) {
-        stripeService.handlePaymentSuccess(paymentIntentId);
+        if (!webhookService.isConfigured()) {
+            stripeService.handlePaymentSuccess(paymentIntentId);
+        }
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/failure")
     public ResponseEntity<Void> handlePaymentFailure(@RequestParam String paymentIntentId) {
-        stripeService.handlePaymentFailure(paymentIntentId);
+        if (!webhookService.isConfigured()) {
+            stripeService.handlePaymentFailure(paymentIntentId);
+        }
         return ResponseEntity.ok().build();
     }
 }
@@ -2,12 +2,23 @@ package com.backend.smartshop.controller;
 
 import com.backend.smartshop.domain.Product;
 import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.ProductFacets;
+import com.backend.smartshop.dto.ProductFeedFormat;
+import com.backend.smartshop.dto.ProductPage;
+import com.backend.smartshop.dto.ProductQuery;
+import com.backend.smartshop.dto.ProductSuggestion;
+import com.backend.smartshop.service.ProductDetailCache;
+import com.backend.smartshop.service.ProductFeedService;
 import com.backend.smartshop.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/products")
@@ -15,20 +26,79 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService service;
+    private final ProductFeedService feedService;
 
     @GetMapping
     public ResponseEntity<List<ProductDTO>> getAllProducts() {
         return ResponseEntity.ok(service.getAllProducts());
     }
 
+    @GetMapping(params = "size")
+    public ResponseEntity<ProductPage> getProductPage(ProductQuery query) {
+        return ResponseEntity.ok(service.getProductPage(query));
+    }
+
     @PostMapping
     public ResponseEntity<Product> createProduct(@RequestBody Product product) {
         return ResponseEntity.ok(service.createProduct(product));
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
-        return ResponseEntity.ok(service.getProductById(id));
+    // Served from pre-serialized bytes; gzipped when the client accepts it
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getProductById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        ProductDetailCache.CachedJson cached = service.getProductJson(id);
+        if (cached.gzip() != null && acceptsGzip(acceptEncoding)) {
+            return ResponseEntity.ok()
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(cached.gzip());
+        }
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(cached.json());
+    }
+
+    // An explicit gzip entry decides, otherwise "*" does; q=0 marks a coding as not acceptable.
+    // x-gzip is not treated as gzip, since the response is labelled Content-Encoding: gzip
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip")) {
+                gzip = quality;
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
+    }
+
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<ProductDTO>> getRelatedProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "8") int limit
+    ) {
+        return ResponseEntity.ok(service.getRelatedProducts(id, limit));
     }
 
     @GetMapping("/category/{categoryId}")
@@ -36,16 +106,50 @@ public class ProductController {
         return ResponseEntity.ok(service.getProductsByCategory(categoryId));
     }
 
+    @GetMapping(value = "/category/{categoryId}", params = "size")
+    public ResponseEntity<ProductPage> getProductPageByCategory(@PathVariable Long categoryId, ProductQuery query) {
+        query.setCategoryId(categoryId);
+        return ResponseEntity.ok(service.getProductPage(query));
+    }
+
     @GetMapping("/brand/{brandId}")
     public ResponseEntity<List<ProductDTO>> getProductsByBrand(@PathVariable Long brandId) {
         return ResponseEntity.ok(service.getProductsByBrand(brandId));
     }
 
+    @GetMapping(value = "/brand/{brandId}", params = "size")
+    public ResponseEntity<ProductPage> getProductPageByBrand(@PathVariable Long brandId, ProductQuery query) {
+        query.setBrandId(brandId);
+        return ResponseEntity.ok(service.getProductPage(query));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String q) {
         return ResponseEntity.ok(service.searchProducts(q));
     }
 
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacets> getFacets(ProductQuery query) {
+        return ResponseEntity.ok(service.getFacets(query));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit
+    ) {
+        return ResponseEntity.ok(service.suggest(prefix, limit));
+    }
+
+    @GetMapping("/feed")
+    public ResponseEntity<StreamingResponseBody> getProductFeed(@RequestParam(defaultValue = "ndjson") String format) {
+        ProductFeedFormat feedFormat = ProductFeedFormat.from(format);
+        return ResponseEntity.ok()
+                .contentType(feedFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"smartshop-products." + feedFormat.getExtension() + "\"")
+                .body(out -> feedService.writeFeed(feedFormat, out));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
         return ResponseEntity.ok(service.updateProduct(id, product));
@@ -0,0 +1,33 @@
+package com.backend.smartshop.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cluster-wide catalog versions, a single row. Every product, category or brand write advances
+ * {@code version}; a node whose checkouts changed stock advances {@code stockVersion} once per
+ * stock refresh. Nodes compare both with the versions their snapshot was built at, and the
+ * catalog ETag is derived from them, so every node serves the same ETag for the same data.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "_catalog_version")
+public class CatalogVersion {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(nullable = false)
+    private long stockVersion;
+}
@@ -0,0 +1,6 @@
+package com.backend.smartshop.domain;
+
+public enum EmailType {
+    ORDER_CONFIRMATION,
+    ADMIN_NOTIFICATION
+}
@@ -0,0 +1,45 @@
+package com.backend.smartshop.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a request sent with an {@code Idempotency-Key} header. Read and written through
+ * {@link com.backend.smartshop.repository.IdempotencyKeyRepository}; mapped here for the schema.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "_idempotency_key", indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expires_at"))
+public class IdempotencyKey {
+
+    // Endpoint scope, caller and client key, so keys never collide across users or endpoints
+    @Id
+    @Column(name = "record_key", length = 512)
+    private String recordKey;
+
+    // SHA-256 of the request body; reusing a key for a different request is rejected
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IdempotencyStatus status;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Lease end while IN_PROGRESS, retention end once COMPLETED
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
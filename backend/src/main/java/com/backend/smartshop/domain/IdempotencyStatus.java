@@ -0,0 +1,6 @@
+package com.backend.smartshop.domain;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -15,7 +15,11 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "_order")
+@Table(name = "_order", indexes = {
+        @Index(name = "idx_order_user", columnList = "user_id"),
+        @Index(name = "idx_order_created", columnList = "created_at"),
+        @Index(name = "idx_order_status", columnList = "status, id")
+})
 public class Order {
 
     @Id
@@ -29,8 +33,11 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<OrderItem> items;
 
+    // Includes shippingCost, so it is exactly the amount charged
     private BigDecimal total;
 
+    private BigDecimal shippingCost;
+
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
@@ -50,6 +57,10 @@ public class Order {
 
     private LocalDateTime createdAt;
 
+    // Set when a payment arrived after the order was cancelled and its stock had been sold since;
+    // the order stays cancelled and the payment is owed back to the customer
+    private LocalDateTime refundRequiredAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,29 @@
+package com.backend.smartshop.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Next free order number for one calendar day. Nodes reserve numbers from it in blocks,
+ * so the row is only locked once per block rather than once per order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "_order_code_counter")
+public class OrderCodeCounter {
+
+    @Id
+    @Column(name = "order_date")
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long nextValue;
+}
@@ -14,7 +14,7 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "order_item")
+@Table(name = "order_item", indexes = @Index(name = "idx_order_item_order", columnList = "order_id"))
 public class OrderItem {
 
     @Id
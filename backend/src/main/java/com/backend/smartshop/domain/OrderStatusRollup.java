@@ -0,0 +1,39 @@
+package com.backend.smartshop.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDate;
+
+// Number of orders created on a day that are currently in each status, spread over slot rows like SalesRollup
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "_order_status_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "uk_order_status_rollup_day_status_slot", columnNames = {"sales_date", "status", "slot"}))
+public class OrderStatusRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(nullable = false)
+    private long orders;
+}
@@ -0,0 +1,8 @@
+package com.backend.smartshop.domain;
+
+public enum OutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    DEAD
+}
@@ -31,16 +31,18 @@ public class Product {
     @Column(nullable = false)
     private BigDecimal price;
 
+    // Never null, so the conditional stock decrement can match it; 0 when not given
+    @Column(nullable = false)
     private Integer stock;
 
     private String imageUrl;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     @JsonBackReference(value = "category-products")
     private Category category;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "brand_id")
     @JsonBackReference(value = "brand-products")
     private Brand brand;
@@ -53,5 +55,13 @@ public class Product {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        onUpdate();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        if (stock == null) {
+            stock = 0;
+        }
     }
 }
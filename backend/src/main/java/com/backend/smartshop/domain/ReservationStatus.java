@@ -0,0 +1,7 @@
+package com.backend.smartshop.domain;
+
+public enum ReservationStatus {
+    ACTIVE,
+    COMMITTED,
+    RELEASED
+}
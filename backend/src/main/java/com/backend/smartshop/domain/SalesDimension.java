@@ -0,0 +1,8 @@
+package com.backend.smartshop.domain;
+
+public enum SalesDimension {
+    CATEGORY,
+    BRAND,
+    // Ranks typeahead suggestions; not part of the sales statistics
+    PRODUCT
+}
@@ -0,0 +1,57 @@
+package com.backend.smartshop.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDate;
+
+/**
+ * Sales of one day for one category, brand or product, kept up to date as orders are created and
+ * cancelled. Cancelled orders are subtracted again, so the row holds live sales only.
+ * Products without a category or brand are counted under dimension id 0. Each day, dimension
+ * and id is spread over several slot rows that checkouts pick at random, so concurrent orders
+ * rarely wait on the same row; readers sum the slots.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "_sales_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "uk_sales_rollup_day_dimension_slot", columnNames = {"sales_date", "dimension", "dimension_id", "slot"}))
+public class SalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SalesDimension dimension;
+
+    @Column(name = "dimension_id", nullable = false)
+    private Long dimensionId;
+
+    // The default fills rows written before slots existed
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int slot;
+
+    // Orders with at least one line in this category or brand
+    @Column(nullable = false)
+    private long orders;
+
+    @Column(nullable = false)
+    private long units;
+
+    // In bani, like the pricing engine
+    @Column(name = "revenue_minor", nullable = false)
+    private long revenueMinor;
+}
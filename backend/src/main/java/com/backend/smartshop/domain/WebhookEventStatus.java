@@ -0,0 +1,8 @@
+package com.backend.smartshop.domain;
+
+public enum WebhookEventStatus {
+    RECEIVED,
+    PROCESSING,
+    PROCESSED,
+    FAILED
+}
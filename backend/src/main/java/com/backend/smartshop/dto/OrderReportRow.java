@@ -0,0 +1,32 @@
+package com.backend.smartshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One order line; the order columns repeat on every line of the same order
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderReportRow {
+    private Long orderId;
+    private String orderCode;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime createdAt;
+    private String status;
+    private BigDecimal orderTotal;
+    private String customerEmail;
+    private String deliveryCity;
+    private String deliveryCounty;
+    private Long productId;
+    private String productName;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal lineTotal;
+}
@@ -19,6 +19,7 @@ public class OrderResponse {
     private Long id;
     private String orderCode;
     private BigDecimal total;
+    private BigDecimal shippingCost;
     private OrderStatus status;
     private LocalDateTime createdAt;
 
@@ -33,6 +34,9 @@ public class OrderResponse {
     private String deliveryCountry;
     private String deliveryNotes;
 
+    // Set on a cancelled order whose late payment must be refunded
+    private LocalDateTime refundRequiredAt;
+
     private List<OrderItemResponse> items;
 
     @Data
@@ -0,0 +1,23 @@
+package com.backend.smartshop.dto;
+
+import com.backend.smartshop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    private Long id;
+    private String orderCode;
+    private LocalDateTime createdAt;
+    private OrderStatus status;
+    private BigDecimal total;
+    private Long itemCount;
+}
@@ -0,0 +1,17 @@
+package com.backend.smartshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryPage {
+    private List<OrderSummary> items;
+    private String nextCursor;
+}
@@ -0,0 +1,25 @@
+package com.backend.smartshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Counters are totals since startup; the failure rate covers the circuit breaker's current window
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentGatewayStats {
+
+    private String circuitState;
+    private double failureRate;
+    private int activeCalls;
+    private int queuedCalls;
+    private int queueCapacity;
+    private long calls;
+    private long failures;
+    private long timeouts;
+    private long rejected;
+    private long shortCircuited;
+}
@@ -0,0 +1,32 @@
+package com.backend.smartshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacets {
+
+    private int total;
+    private List<FacetValue> categories;
+    private List<FacetValue> brands;
+    private List<FacetValue> priceRanges;
+    private List<FacetValue> ram;
+    private List<FacetValue> storage;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetValue {
+        private String value;
+        private String label;
+        private int count;
+    }
+}
@@ -0,0 +1,35 @@
+package com.backend.smartshop.dto;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+public enum ProductFeedFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv"),
+    XML(MediaType.APPLICATION_XML, "xml");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ProductFeedFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ProductFeedFormat from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Format de feed necunoscut: " + value + ". Foloseste ndjson, csv sau xml.");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.backend.smartshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductQuery {
+
+    // Filters
+    private String q;
+    private Long categoryId;
+    private Long brandId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+    private String ram;
+    private String storage;
+
+    // Paging
+    @Builder.Default
+    private ProductSort sort = ProductSort.NEWEST;
+    private String cursor;
+    private Integer size;
+}
@@ -0,0 +1,21 @@
+package com.backend.smartshop.dto;
+
+import java.util.Comparator;
+
+public enum ProductSort {
+    PRICE_ASC(Comparator.comparing(ProductDTO::getPrice)),
+    PRICE_DESC(Comparator.comparing(ProductDTO::getPrice).reversed()),
+    NEWEST(Comparator.comparing(ProductDTO::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))),
+    NAME(Comparator.comparing(ProductDTO::getName, String.CASE_INSENSITIVE_ORDER));
+
+    private final Comparator<ProductDTO> comparator;
+
+    ProductSort(Comparator<ProductDTO> comparator) {
+        // Break ties on id so every product has a unique position a cursor can point to
+        this.comparator = comparator.thenComparing(ProductDTO::getId);
+    }
+
+    public Comparator<ProductDTO> comparator() {
+        return comparator;
+    }
+}
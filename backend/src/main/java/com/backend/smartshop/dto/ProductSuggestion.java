@@ -0,0 +1,23 @@
+package com.backend.smartshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestion {
+
+    private String text;
+    private Type type;
+    private Long id;
+
+    public enum Type {
+        PRODUCT,
+        BRAND,
+        CATEGORY
+    }
+}
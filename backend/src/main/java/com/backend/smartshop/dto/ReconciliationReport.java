@@ -0,0 +1,50 @@
+package com.backend.smartshop.dto;
+
+import com.backend.smartshop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Counts cover the whole run; discrepancies lists only the first ones found
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReport {
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    // False when the provider was not listed (disabled or failed); only webhook events were used then
+    private boolean providerChecked;
+    private long intentsListed;
+    private long ordersChecked;
+    private long markedPaid;
+    private long cancelled;
+    private long awaitingPayment;
+    private long needsReview;
+    private String error;
+    private List<Discrepancy> discrepancies;
+
+    public enum Action {
+        MARKED_PAID,
+        CANCELLED,
+        REVIEW
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Discrepancy {
+        private Long orderId;
+        private String orderCode;
+        private OrderStatus orderStatus;
+        // Payment intent status, or NONE when no payment was found for the order
+        private String paymentStatus;
+        private Action action;
+    }
+}
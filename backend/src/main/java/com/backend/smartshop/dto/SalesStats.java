@@ -0,0 +1,53 @@
+package com.backend.smartshop.dto;
+
+import com.backend.smartshop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Orders, units and revenue exclude cancelled orders; statuses count every order created in the range
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesStats {
+
+    private LocalDate from;
+    private LocalDate to;
+    private long orders;
+    private long units;
+    private BigDecimal revenue;
+    private List<DailySales> days;
+    private List<GroupSales> categories;
+    private List<GroupSales> brands;
+    private Map<OrderStatus, Long> statuses;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailySales {
+        private LocalDate day;
+        private long orders;
+        private long units;
+        private BigDecimal revenue;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GroupSales {
+        private Long id;
+        private String name;
+        private long orders;
+        private long units;
+        private BigDecimal revenue;
+    }
+}
@@ -18,6 +18,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    // Query parameters that do not convert to their field, such as an unknown sort order
+    @ExceptionHandler(org.springframework.validation.BindException.class)
+    public ResponseEntity<Map<String, String>> handleBindException(org.springframework.validation.BindException ex) {
+        Map<String, String> error = new HashMap<>();
+        String fields = ex.getFieldErrors().stream()
+                .map(org.springframework.validation.FieldError::getField)
+                .distinct()
+                .collect(java.util.stream.Collectors.joining(", "));
+        error.put("message", "Parametri invalizi: " + fields);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
     @ExceptionHandler(org.springframework.dao.DataIntegrityViolationException.class)
     public ResponseEntity<Map<String, String>> handleDataIntegrityViolationException(
             org.springframework.dao.DataIntegrityViolationException ex) {
@@ -35,6 +47,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
     
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflictException(IdempotencyConflictException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(org.springframework.security.core.AuthenticationException.class)
     public ResponseEntity<Map<String, String>> handleAuthenticationException(
             org.springframework.security.core.AuthenticationException ex) {
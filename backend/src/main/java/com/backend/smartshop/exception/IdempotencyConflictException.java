@@ -0,0 +1,12 @@
+package com.backend.smartshop.exception;
+
+/**
+ * A request with the same {@code Idempotency-Key} is still being processed and did not finish
+ * within the wait timeout.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
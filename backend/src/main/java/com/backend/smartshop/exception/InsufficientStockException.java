@@ -0,0 +1,23 @@
+package com.backend.smartshop.exception;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One or more products of an order do not have enough stock left. A bad request for the
+ * client, like any other {@link IllegalArgumentException}.
+ */
+public class InsufficientStockException extends IllegalArgumentException {
+
+    private final List<Long> productIds;
+
+    public InsufficientStockException(List<Long> productIds) {
+        super("Insufficient stock for products: "
+                + productIds.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,24 @@
+package com.backend.smartshop.exception;
+
+/**
+ * The payment provider rejected a call or could not be reached. {@code unavailable} marks
+ * failures of the provider itself (outages, timeouts, overload) as opposed to a rejected request;
+ * only those count towards the circuit breaker and are reported as 503.
+ */
+public class PaymentGatewayException extends Exception {
+
+    private final boolean unavailable;
+
+    public PaymentGatewayException(String message) {
+        this(message, false, null);
+    }
+
+    public PaymentGatewayException(String message, boolean unavailable, Throwable cause) {
+        super(message, cause);
+        this.unavailable = unavailable;
+    }
+
+    public boolean isUnavailable() {
+        return unavailable;
+    }
+}
@@ -0,0 +1,18 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, Integer> {
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE CatalogVersion v SET v.version = v.version + 1 WHERE v.id = :id")
+    int incrementVersion(@Param("id") int id);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE CatalogVersion v SET v.stockVersion = v.stockVersion + 1 WHERE v.id = :id")
+    int incrementStockVersion(@Param("id") int id);
+}
@@ -0,0 +1,90 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.IdempotencyKey;
+import com.backend.smartshop.domain.IdempotencyStatus;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Plain JDBC access to {@code _idempotency_key}. Lookups run before the request's own
+ * transaction; outside a transaction each statement returns its connection to the pool right
+ * away, instead of pinning one to the request's entity manager for the rest of the request.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public Optional<IdempotencyKey> find(String recordKey) {
+        return jdbcTemplate.query("""
+                        SELECT record_key, request_hash, status, response_body, created_at, expires_at
+                        FROM _idempotency_key WHERE record_key = ?
+                        """,
+                (rs, rowNum) -> IdempotencyKey.builder()
+                        .recordKey(rs.getString("record_key"))
+                        .requestHash(rs.getString("request_hash"))
+                        .status(IdempotencyStatus.valueOf(rs.getString("status")))
+                        .responseBody(rs.getString("response_body"))
+                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                        .expiresAt(rs.getTimestamp("expires_at").toLocalDateTime())
+                        .build(),
+                recordKey).stream().findFirst();
+    }
+
+    // False when another request (possibly on another node) holds the key already
+    public boolean insertInProgress(String recordKey, String requestHash, LocalDateTime now, LocalDateTime leaseUntil) {
+        try {
+            jdbcTemplate.update("""
+                            INSERT INTO _idempotency_key (record_key, request_hash, status, created_at, expires_at)
+                            VALUES (?, ?, ?, ?, ?)
+                            """,
+                    recordKey, requestHash, IdempotencyStatus.IN_PROGRESS.name(),
+                    Timestamp.valueOf(now), Timestamp.valueOf(leaseUntil));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    // Extends leases still held by the given claims, identified by key and claim time
+    public void renew(Map<String, LocalDateTime> claims, LocalDateTime leaseUntil) {
+        jdbcTemplate.batchUpdate("""
+                        UPDATE _idempotency_key SET expires_at = ?
+                        WHERE record_key = ? AND created_at = ? AND status = ?
+                        """,
+                claims.entrySet().stream()
+                        .map(claim -> new Object[]{Timestamp.valueOf(leaseUntil), claim.getKey(),
+                                Timestamp.valueOf(claim.getValue()), IdempotencyStatus.IN_PROGRESS.name()})
+                        .toList());
+    }
+
+    public void complete(String recordKey, String responseBody, LocalDateTime expiresAt) {
+        jdbcTemplate.update("UPDATE _idempotency_key SET status = ?, response_body = ?, expires_at = ? WHERE record_key = ?",
+                IdempotencyStatus.COMPLETED.name(), responseBody, Timestamp.valueOf(expiresAt), recordKey);
+    }
+
+    public void delete(String recordKey) {
+        jdbcTemplate.update("DELETE FROM _idempotency_key WHERE record_key = ?", recordKey);
+    }
+
+    // Only removes the row if it is still the expired one, not a fresh claim by another request
+    public void deleteIfExpired(String recordKey, LocalDateTime now) {
+        jdbcTemplate.update("DELETE FROM _idempotency_key WHERE record_key = ? AND expires_at < ?",
+                recordKey, Timestamp.valueOf(now));
+    }
+
+    public int deleteExpired(LocalDateTime now) {
+        return jdbcTemplate.update("DELETE FROM _idempotency_key WHERE expires_at < ?", Timestamp.valueOf(now));
+    }
+}
@@ -0,0 +1,18 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.OrderCodeCounter;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface OrderCodeCounterRepository extends JpaRepository<OrderCodeCounter, LocalDate> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM OrderCodeCounter c WHERE c.day = :day")
+    Optional<OrderCodeCounter> findForUpdate(@Param("day") LocalDate day);
+}
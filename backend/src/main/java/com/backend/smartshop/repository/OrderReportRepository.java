@@ -0,0 +1,101 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.config.ReadOnlyPoolFactory;
+import com.backend.smartshop.dto.OrderReportQuery;
+import com.backend.smartshop.dto.OrderReportRow;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only read of order lines for report exports. Runs on a read-only pool of its own
+ * ({@link ReadOnlyPoolFactory}), streaming rows through a server-side cursor of
+ * {@link #FETCH_SIZE} rows; a long export therefore holds constant memory and at most
+ * {@code application.reports.pool-size} connections, never one of the checkout pool's.
+ */
+@Repository
+public class OrderReportRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String REPORT_QUERY = """
+            SELECT o.id AS order_id, o.order_code, o.created_at, o.status, o.total,
+                   COALESCE(o.delivery_email, u.email) AS customer_email, o.delivery_city, o.delivery_county,
+                   i.product_id, p.name AS product_name, i.quantity, i.price
+            FROM _order o
+            JOIN order_item i ON i.order_id = o.id
+            LEFT JOIN product p ON p.id = i.product_id
+            LEFT JOIN _user u ON u.id = o.user_id
+            """;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderReportRepository(ReadOnlyPoolFactory pools,
+                                 @Value("${application.reports.datasource.url:}") String url,
+                                 @Value("${application.reports.pool-size:2}") int poolSize) {
+        // A replica when configured, otherwise the primary database
+        this.dataSource = pools.create("report-pool", url, poolSize);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    public void streamReportRows(OrderReportQuery query, Consumer<OrderReportRow> consumer) {
+        StringBuilder sql = new StringBuilder(REPORT_QUERY);
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (query.getFrom() != null) {
+            conditions.add("o.created_at >= ?");
+            args.add(Timestamp.valueOf(query.getFrom().atStartOfDay()));
+        }
+        if (query.getTo() != null) {
+            conditions.add("o.created_at < ?");
+            args.add(Timestamp.valueOf(query.getTo().plusDays(1).atStartOfDay()));
+        }
+        if (query.getStatus() != null) {
+            conditions.add("o.status = ?");
+            args.add(query.getStatus().name());
+        }
+        if (query.getProductId() != null) {
+            conditions.add("i.product_id = ?");
+            args.add(query.getProductId());
+        }
+        if (!conditions.isEmpty()) {
+            sql.append("WHERE ").append(String.join(" AND ", conditions)).append('\n');
+        }
+        sql.append("ORDER BY o.id, i.id");
+
+        jdbcTemplate.query(sql.toString(), rs -> {
+            BigDecimal price = rs.getBigDecimal("price");
+            Integer quantity = rs.getObject("quantity", Integer.class);
+            consumer.accept(OrderReportRow.builder()
+                    .orderId(rs.getLong("order_id"))
+                    .orderCode(rs.getString("order_code"))
+                    .createdAt(rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null)
+                    .status(rs.getString("status"))
+                    .orderTotal(rs.getBigDecimal("total"))
+                    .customerEmail(rs.getString("customer_email"))
+                    .deliveryCity(rs.getString("delivery_city"))
+                    .deliveryCounty(rs.getString("delivery_county"))
+                    .productId(rs.getObject("product_id", Long.class))
+                    .productName(rs.getString("product_name"))
+                    .quantity(quantity)
+                    .unitPrice(price)
+                    .lineTotal(price != null && quantity != null ? price.multiply(BigDecimal.valueOf(quantity)) : null)
+                    .build());
+        }, args.toArray());
+    }
+
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+}
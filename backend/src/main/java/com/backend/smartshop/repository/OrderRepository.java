@@ -1,12 +1,167 @@
 package com.backend.smartshop.repository;
 
 import com.backend.smartshop.domain.Order;
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.dto.OrderSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserId(Long userId);
-    Optional<Order> findByOrderCode(String orderCode);
+    // Newest first by id; beforeId is the keyset cursor (Long.MAX_VALUE for the first page)
+    @Query("SELECT new com.backend.smartshop.dto.OrderSummary(o.id, o.orderCode, o.createdAt, o.status, o.total, COUNT(i)) " +
+            "FROM Order o LEFT JOIN o.items i " +
+            "WHERE o.user.id = :userId AND o.id < :beforeId " +
+            "GROUP BY o.id, o.orderCode, o.createdAt, o.status, o.total " +
+            "ORDER BY o.id DESC")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") Long userId,
+                                             @Param("beforeId") Long beforeId,
+                                             Pageable pageable);
+
+    // Everything an OrderResponse needs, one row per line, in a single statement with no entity loading
+    String RESPONSE_ROWS = "SELECT o.id AS id, o.orderCode AS orderCode, o.total AS total, " +
+            "o.shippingCost AS shippingCost, o.status AS status, " +
+            "o.createdAt AS createdAt, o.deliveryName AS deliveryName, o.deliveryEmail AS deliveryEmail, " +
+            "o.deliveryPhone AS deliveryPhone, o.deliveryAddress AS deliveryAddress, o.deliveryCity AS deliveryCity, " +
+            "o.deliveryCounty AS deliveryCounty, o.deliveryPostalCode AS deliveryPostalCode, " +
+            "o.deliveryCountry AS deliveryCountry, o.deliveryNotes AS deliveryNotes, o.refundRequiredAt AS refundRequiredAt, u.email AS ownerEmail, " +
+            "i.id AS itemId, p.name AS productName, i.quantity AS quantity, i.price AS price " +
+            "FROM Order o LEFT JOIN o.user u LEFT JOIN o.items i LEFT JOIN i.product p ";
+
+    @Query(RESPONSE_ROWS + "WHERE o.id IN :ids ORDER BY o.id, i.id")
+    List<OrderResponseRow> findResponseRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(RESPONSE_ROWS + "WHERE o.orderCode = :orderCode ORDER BY i.id")
+    List<OrderResponseRow> findResponseRowsByOrderCode(@Param("orderCode") String orderCode);
+
+    @Query("SELECT o.status FROM Order o WHERE o.id = :id")
+    Optional<OrderStatus> findStatusById(@Param("id") Long id);
+
+    // Conditional, so a status change never overwrites one made concurrently
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to WHERE o.id = :id AND o.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") OrderStatus from, @Param("to") OrderStatus to);
+
+    // Only a cancelled order is flagged, and only once
+    @Modifying
+    @Query("UPDATE Order o SET o.refundRequiredAt = :at WHERE o.id = :id " +
+            "AND o.status = com.backend.smartshop.domain.OrderStatus.CANCELLED AND o.refundRequiredAt IS NULL")
+    int markRefundRequired(@Param("id") Long id, @Param("at") LocalDateTime at);
+
+    @Query("SELECT MAX(o.orderCode) FROM Order o WHERE o.orderCode LIKE CONCAT(:prefix, '%')")
+    Optional<String> findLastOrderCode(@Param("prefix") String prefix);
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o WHERE o.status IN :statuses AND o.createdAt >= :from AND o.createdAt < :to")
+    Optional<LocalDateTime> findOldestCreatedAt(@Param("statuses") Collection<OrderStatus> statuses,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    // Ids grow with creation time, so these turn a creation window into an id range
+    @Query("SELECT MIN(o.id) FROM Order o WHERE o.createdAt >= :from")
+    Optional<Long> findFirstIdCreatedFrom(@Param("from") LocalDateTime from);
+
+    @Query("SELECT MAX(o.id) FROM Order o WHERE o.createdAt < :to")
+    Optional<Long> findLastIdCreatedBefore(@Param("to") LocalDateTime to);
+
+    // Keyset page within one status; ordering by the whole of idx_order_status lets the database read the
+    // page straight off the index instead of sorting every match. afterId is the previous page's last id
+    @Query("SELECT o.id AS id, o.orderCode AS orderCode, o.status AS status FROM Order o " +
+            "WHERE o.status = :status AND o.id > :afterId AND o.id <= :lastId ORDER BY o.status, o.id")
+    List<OrderState> findStates(@Param("status") OrderStatus status,
+                                @Param("afterId") Long afterId,
+                                @Param("lastId") Long lastId,
+                                Pageable pageable);
+
+    // Locks the orders still in the given status; others were changed concurrently and are skipped
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids AND o.status = :status")
+    List<Order> lockByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to WHERE o.id IN :ids AND o.status = :from")
+    int updateStatuses(@Param("ids") Collection<Long> ids, @Param("from") OrderStatus from, @Param("to") OrderStatus to);
+
+    // Units and revenue per order and product, with its category/brand, summed over order_item in one statement
+    @Query("SELECT o.id AS orderId, p.id AS productId, c.id AS categoryId, b.id AS brandId, SUM(i.quantity) AS units, " +
+            "SUM(i.price * i.quantity) AS revenue " +
+            "FROM OrderItem i JOIN i.order o JOIN i.product p LEFT JOIN p.category c LEFT JOIN p.brand b " +
+            "WHERE o.id IN :ids GROUP BY o.id, p.id, c.id, b.id")
+    List<OrderSalesRow> findSalesByOrderIdIn(@Param("ids") Collection<Long> ids);
+
+    interface OrderState {
+        Long getId();
+
+        String getOrderCode();
+
+        OrderStatus getStatus();
+    }
+
+    interface OrderSalesRow {
+        Long getOrderId();
+
+        Long getProductId();
+
+        Long getCategoryId();
+
+        Long getBrandId();
+
+        Long getUnits();
+
+        BigDecimal getRevenue();
+    }
+
+    interface OrderResponseRow {
+        Long getId();
+
+        String getOrderCode();
+
+        BigDecimal getTotal();
+
+        BigDecimal getShippingCost();
+
+        OrderStatus getStatus();
+
+        LocalDateTime getCreatedAt();
+
+        String getDeliveryName();
+
+        String getDeliveryEmail();
+
+        String getDeliveryPhone();
+
+        String getDeliveryAddress();
+
+        String getDeliveryCity();
+
+        String getDeliveryCounty();
+
+        String getDeliveryPostalCode();
+
+        String getDeliveryCountry();
+
+        String getDeliveryNotes();
+
+        LocalDateTime getRefundRequiredAt();
+
+        String getOwnerEmail();
+
+        // Null for an order without lines
+        Long getItemId();
+
+        String getProductName();
+
+        Integer getQuantity();
+
+        BigDecimal getPrice();
+    }
 }
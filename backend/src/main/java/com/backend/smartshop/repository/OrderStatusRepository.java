@@ -0,0 +1,43 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.OrderStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+
+/**
+ * Order status lookups for the status event stream. Plain JDBC on purpose: with open-in-view,
+ * a JPA query in a request that then streams events would keep its connection for the whole
+ * lifetime of the stream, while a JdbcTemplate query returns it immediately.
+ */
+@Repository
+public class OrderStatusRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderStatusRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public record OrderOwner(Long orderId, String orderCode, String ownerEmail) {
+    }
+
+    public Optional<OrderOwner> findOwnerByOrderCode(String orderCode) {
+        return jdbcTemplate.query("""
+                        SELECT o.id, o.order_code, u.email
+                        FROM _order o
+                        LEFT JOIN _user u ON u.id = o.user_id
+                        WHERE o.order_code = ?
+                        """,
+                (rs, rowNum) -> new OrderOwner(rs.getLong("id"), rs.getString("order_code"), rs.getString("email")),
+                orderCode).stream().findFirst();
+    }
+
+    public Optional<OrderStatus> findStatus(Long orderId) {
+        return jdbcTemplate.queryForList("SELECT status FROM _order WHERE id = ?", String.class, orderId).stream()
+                .findFirst()
+                .map(OrderStatus::valueOf);
+    }
+}
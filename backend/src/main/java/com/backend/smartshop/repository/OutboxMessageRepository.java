@@ -0,0 +1,33 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.OutboxMessage;
+import com.backend.smartshop.domain.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    @Query("SELECT m.id FROM OutboxMessage m WHERE m.status IN :statuses AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("statuses") Collection<OutboxStatus> statuses,
+                          @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    // Succeeds for exactly one dispatcher even when several nodes poll the same message
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = :claimed, m.nextAttemptAt = :leaseUntil " +
+            "WHERE m.id = :id AND m.status IN :statuses AND m.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id,
+              @Param("statuses") Collection<OutboxStatus> statuses,
+              @Param("claimed") OutboxStatus claimed,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+}
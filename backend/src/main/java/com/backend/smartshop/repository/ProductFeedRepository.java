@@ -0,0 +1,63 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.config.ReadOnlyPoolFactory;
+import com.backend.smartshop.dto.ProductFeedRow;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.function.Consumer;
+
+/**
+ * Forward-only read of the whole catalog for feed exports. Rows are handed to the consumer as
+ * they arrive from the driver. The feed is public and a slow client keeps its connection for the
+ * whole download, so it reads through a read-only pool of its own ({@link ReadOnlyPoolFactory}):
+ * at most {@code application.feed.pool-size} downloads run at once and checkout never waits on
+ * them.
+ */
+@Repository
+public class ProductFeedRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String FEED_QUERY = """
+            SELECT p.id, p.name, p.description, p.price, p.stock, p.image_url,
+                   c.name AS category_name, b.name AS brand_name
+            FROM product p
+            LEFT JOIN category c ON c.id = p.category_id
+            LEFT JOIN brand b ON b.id = p.brand_id
+            ORDER BY p.id
+            """;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductFeedRepository(ReadOnlyPoolFactory pools,
+                                 @Value("${application.feed.pool-size:2}") int poolSize) {
+        this.dataSource = pools.create("feed-pool", null, poolSize);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    public void streamFeedRows(Consumer<ProductFeedRow> consumer) {
+        jdbcTemplate.query(FEED_QUERY, rs -> {
+            consumer.accept(ProductFeedRow.builder()
+                    .id(rs.getLong("id"))
+                    .name(rs.getString("name"))
+                    .description(rs.getString("description"))
+                    .price(rs.getBigDecimal("price"))
+                    .stock(rs.getObject("stock", Integer.class))
+                    .imageUrl(rs.getString("image_url"))
+                    .categoryName(rs.getString("category_name"))
+                    .brandName(rs.getString("brand_name"))
+                    .build());
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+}
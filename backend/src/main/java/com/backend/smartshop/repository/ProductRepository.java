@@ -1,16 +1,34 @@
 package com.backend.smartshop.repository;
 
 import com.backend.smartshop.domain.Product;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByCategoryId(Long categoryId);
-    List<Product> findByBrandId(Long brandId);
 
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<Product> searchProducts(@Param("query") String query);
+    // The catalog snapshot, which serves every product read, is built from this one statement. The
+    // specification is the inverse side of a one-to-one and would otherwise cost a select per product
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.brand LEFT JOIN FETCH p.specification")
+    List<Product> findAllWithDetails();
+
+    @Query("SELECT p.id AS id, p.stock AS stock FROM Product p WHERE p.id IN :ids")
+    List<StockLevel> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id AS id, p.stock AS stock FROM Product p")
+    List<StockLevel> findAllStock();
+
+    // Checkout resolves a whole cart with one IN query
+    @EntityGraph(attributePaths = "specification")
+    List<Product> findByIdIn(Collection<Long> ids);
+
+    interface StockLevel {
+        Long getId();
+
+        Integer getStock();
+    }
 }
@@ -0,0 +1,62 @@
+package com.backend.smartshop.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Atomic stock adjustments, sent as one JDBC batch per order. Runs in the caller's transaction.
+ * Rows are always touched in product id order, so two orders sharing products lock them in
+ * the same order and cannot deadlock.
+ */
+@Repository
+public class ProductStockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStockRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    // Returns the products that did not have enough stock; those rows are left unchanged
+    public List<Long> decrement(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE product SET stock = stock - ? WHERE id = ? AND stock >= ?",
+                lines.stream()
+                        .map(line -> new Object[]{line.getValue(), line.getKey(), line.getValue()})
+                        .toList());
+
+        List<Long> insufficient = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                insufficient.add(lines.get(i).getKey());
+            }
+        }
+        return insufficient;
+    }
+
+    /**
+     * Products saved before stock became mandatory may have NULL stock, which no decrement matches
+     * and which every reader already shows as unavailable. They are set to 0 and the column made
+     * NOT NULL, since schema updates never tighten an existing column. Idempotent.
+     */
+    public int requireStock() {
+        int updated = jdbcTemplate.update("UPDATE product SET stock = 0 WHERE stock IS NULL");
+        jdbcTemplate.execute("ALTER TABLE product ALTER COLUMN stock SET NOT NULL");
+        return updated;
+    }
+
+    public void increment(Map<Long, Integer> quantities) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE product SET stock = stock + ? WHERE id = ?",
+                new TreeMap<>(quantities).entrySet().stream()
+                        .map(line -> new Object[]{line.getValue(), line.getKey()})
+                        .toList());
+    }
+}
@@ -0,0 +1,163 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.domain.OrderStatusRollup;
+import com.backend.smartshop.domain.SalesDimension;
+import com.backend.smartshop.domain.SalesRollup;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rollup rows for sales statistics. Increments are relative updates, so concurrent orders never
+ * overwrite each other; callers send them in a fixed key order so they cannot deadlock. Every key
+ * has several slot rows and a transaction increments one of them, so checkouts in the same
+ * category do not queue on one row lock; reads sum the slots. Rows are created ahead of the
+ * transactions that increment them, because a duplicate insert inside a PostgreSQL transaction
+ * would abort the whole checkout.
+ */
+@Repository
+public class SalesRollupRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SalesRollupRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public record SalesDelta(SalesDimension dimension, long dimensionId, long orders, long units, long revenueMinor) {
+    }
+
+    public record UnitsSold(SalesDimension dimension, long dimensionId, long units) {
+    }
+
+    // Must run outside a transaction; rows created concurrently by another node are left as they are
+    public void createIfMissing(LocalDate day, SalesDimension dimension, long dimensionId, int slots) {
+        for (int slot = 0; slot < slots; slot++) {
+            try {
+                jdbcTemplate.update("""
+                                INSERT INTO _sales_rollup (sales_date, dimension, dimension_id, slot, orders, units, revenue_minor)
+                                VALUES (?, ?, ?, ?, 0, 0, 0)
+                                """,
+                        Date.valueOf(day), dimension.name(), dimensionId, slot);
+            } catch (DuplicateKeyException e) {
+                // Already there
+            }
+        }
+    }
+
+    // Must run outside a transaction, like createIfMissing
+    public void createStatusIfMissing(LocalDate day, OrderStatus status, int slots) {
+        for (int slot = 0; slot < slots; slot++) {
+            try {
+                jdbcTemplate.update("INSERT INTO _order_status_rollup (sales_date, status, slot, orders) VALUES (?, ?, ?, 0)",
+                        Date.valueOf(day), status.name(), slot);
+            } catch (DuplicateKeyException e) {
+                // Already there
+            }
+        }
+    }
+
+    /**
+     * The unique keys gained the slot column; schema updates add the new keys but never drop the
+     * old ones, which would allow a single slot. Idempotent.
+     */
+    public void dropUnslottedKeys() {
+        jdbcTemplate.execute("ALTER TABLE _sales_rollup DROP CONSTRAINT IF EXISTS uk_sales_rollup_day_dimension");
+        jdbcTemplate.execute("ALTER TABLE _order_status_rollup DROP CONSTRAINT IF EXISTS uk_order_status_rollup_day_status");
+    }
+
+    // Returns the deltas that found no row to update
+    public List<SalesDelta> add(LocalDate day, int slot, List<SalesDelta> deltas) {
+        int[] updated = jdbcTemplate.batchUpdate("""
+                        UPDATE _sales_rollup
+                        SET orders = orders + ?, units = units + ?, revenue_minor = revenue_minor + ?
+                        WHERE sales_date = ? AND dimension = ? AND dimension_id = ? AND slot = ?
+                        """,
+                deltas.stream()
+                        .map(delta -> new Object[]{delta.orders(), delta.units(), delta.revenueMinor(),
+                                Date.valueOf(day), delta.dimension().name(), delta.dimensionId(), slot})
+                        .toList());
+        List<SalesDelta> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(deltas.get(i));
+            }
+        }
+        return missing;
+    }
+
+    public void insert(LocalDate day, int slot, SalesDelta delta) {
+        jdbcTemplate.update("""
+                        INSERT INTO _sales_rollup (sales_date, dimension, dimension_id, slot, orders, units, revenue_minor)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)
+                        """,
+                Date.valueOf(day), delta.dimension().name(), delta.dimensionId(), slot,
+                delta.orders(), delta.units(), delta.revenueMinor());
+    }
+
+    public void addStatus(LocalDate day, int slot, OrderStatus status, long orders) {
+        int updated = jdbcTemplate.update(
+                "UPDATE _order_status_rollup SET orders = orders + ? WHERE sales_date = ? AND status = ? AND slot = ?",
+                orders, Date.valueOf(day), status.name(), slot);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO _order_status_rollup (sales_date, status, slot, orders) VALUES (?, ?, ?, ?)",
+                    Date.valueOf(day), status.name(), slot, orders);
+        }
+    }
+
+    // Categories and brands only, one row per day and key with the slots summed
+    public List<SalesRollup> findBetween(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query("""
+                        SELECT sales_date, dimension, dimension_id,
+                               SUM(orders) AS orders, SUM(units) AS units, SUM(revenue_minor) AS revenue_minor
+                        FROM _sales_rollup
+                        WHERE sales_date BETWEEN ? AND ? AND dimension <> 'PRODUCT'
+                        GROUP BY sales_date, dimension, dimension_id
+                        """,
+                (rs, rowNum) -> SalesRollup.builder()
+                        .day(rs.getDate("sales_date").toLocalDate())
+                        .dimension(SalesDimension.valueOf(rs.getString("dimension")))
+                        .dimensionId(rs.getLong("dimension_id"))
+                        .orders(rs.getLong("orders"))
+                        .units(rs.getLong("units"))
+                        .revenueMinor(rs.getLong("revenue_minor"))
+                        .build(),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // Units sold per category, brand and product since the given day
+    public List<UnitsSold> findUnitsSince(LocalDate from) {
+        return jdbcTemplate.query("""
+                        SELECT dimension, dimension_id, SUM(units) AS units
+                        FROM _sales_rollup
+                        WHERE sales_date >= ?
+                        GROUP BY dimension, dimension_id
+                        """,
+                (rs, rowNum) -> new UnitsSold(SalesDimension.valueOf(rs.getString("dimension")),
+                        rs.getLong("dimension_id"), rs.getLong("units")),
+                Date.valueOf(from));
+    }
+
+    public List<OrderStatusRollup> findStatusesBetween(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                """
+                        SELECT sales_date, status, SUM(orders) AS orders
+                        FROM _order_status_rollup
+                        WHERE sales_date BETWEEN ? AND ?
+                        GROUP BY sales_date, status
+                        """,
+                (rs, rowNum) -> OrderStatusRollup.builder()
+                        .day(rs.getDate("sales_date").toLocalDate())
+                        .status(OrderStatus.valueOf(rs.getString("status")))
+                        .orders(rs.getLong("orders"))
+                        .build(),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+}
@@ -0,0 +1,47 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.ReservationStatus;
+import com.backend.smartshop.domain.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByOrderIdAndStatus(Long orderId, ReservationStatus status);
+
+    @Query("SELECT DISTINCT r.orderId FROM StockReservation r WHERE r.status = :status AND r.expiresAt < :now")
+    List<Long> findOrderIdsExpiredBefore(@Param("status") ReservationStatus status,
+                                         @Param("now") LocalDateTime now,
+                                         Pageable pageable);
+
+    // Conditional, so a reservation is committed or released at most once even when callers race
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") Long id, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.orderId = :orderId AND r.status = :from")
+    int transitionOrder(@Param("orderId") Long orderId, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId IN :orderIds AND r.status = :status")
+    List<StockReservation> lockByOrderIdInAndStatus(@Param("orderIds") Collection<Long> orderIds,
+                                                    @Param("status") ReservationStatus status);
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id IN :ids AND r.status = :from")
+    int transitionAll(@Param("ids") Collection<Long> ids, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.orderId IN :orderIds AND r.status = :from")
+    int transitionOrders(@Param("orderIds") Collection<Long> orderIds, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+}
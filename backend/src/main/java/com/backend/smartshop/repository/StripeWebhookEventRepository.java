@@ -0,0 +1,47 @@
+package com.backend.smartshop.repository;
+
+import com.backend.smartshop.domain.StripeWebhookEvent;
+import com.backend.smartshop.domain.WebhookEventStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, Long> {
+
+    boolean existsByEventId(String eventId);
+
+    // Oldest first, so events of one order are queued in the order Stripe sent them
+    @Query("SELECT e FROM StripeWebhookEvent e WHERE e.status IN :statuses AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<StripeWebhookEvent> findDue(@Param("statuses") Collection<WebhookEventStatus> statuses,
+                                     @Param("now") LocalDateTime now,
+                                     Pageable pageable);
+
+    // Succeeds for exactly one worker even when the recovery poll queues an event a second time
+    @Transactional
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.status = :claimed, e.nextAttemptAt = :leaseUntil " +
+            "WHERE e.id = :id AND e.status IN :statuses AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id,
+              @Param("statuses") Collection<WebhookEventStatus> statuses,
+              @Param("claimed") WebhookEventStatus claimed,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Query("SELECT e.orderId AS orderId, e.type AS type, e.status AS status FROM StripeWebhookEvent e WHERE e.orderId IN :orderIds")
+    List<OrderEvent> findByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    interface OrderEvent {
+        Long getOrderId();
+
+        String getType();
+
+        WebhookEventStatus getStatus();
+    }
+}
@@ -12,6 +12,7 @@ import java.util.List;
 public class BrandService {
 
     private final BrandRepository repository;
+    private final CatalogSnapshotService catalog;
 
     public List<Brand> getAllBrands() {
         return repository.findAll();
@@ -23,7 +24,9 @@ public class BrandService {
     }
 
     public Brand createBrand(Brand brand) {
-        return repository.save(brand);
+        Brand saved = repository.save(brand);
+        catalog.metadataChanged();
+        return saved;
     }
 
     public Brand updateBrand(Long id, Brand brandDetails) {
@@ -34,10 +37,14 @@ public class BrandService {
         brand.setLogoUrl(brandDetails.getLogoUrl());
         brand.setDescription(brandDetails.getDescription());
 
-        return repository.save(brand);
+        Brand saved = repository.save(brand);
+        // Product DTOs embed the brand name
+        catalog.reload();
+        return saved;
     }
 
     public void deleteBrand(Long id) {
         repository.deleteById(id);
+        catalog.reload();
     }
 }
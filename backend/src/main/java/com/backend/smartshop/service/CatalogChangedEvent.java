@@ -0,0 +1,27 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.ProductDTO;
+
+import java.util.List;
+
+/**
+ * Published by {@link CatalogSnapshotService} after a new snapshot has been swapped in.
+ * Products are compared by reference, so only DTOs rebuilt by the write are reported as changed.
+ */
+public record CatalogChangedEvent(CatalogSnapshot previous, CatalogSnapshot current) {
+
+    public List<ProductDTO> changedProducts() {
+        return current.getProducts().stream()
+                .filter(product -> previous == null || previous.getProductsById().get(product.getId()) != product)
+                .toList();
+    }
+
+    public List<Long> removedProductIds() {
+        if (previous == null) {
+            return List.of();
+        }
+        return previous.getProductsById().keySet().stream()
+                .filter(id -> !current.getProductsById().containsKey(id))
+                .toList();
+    }
+}
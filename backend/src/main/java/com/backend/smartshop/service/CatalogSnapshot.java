@@ -0,0 +1,178 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.ProductSort;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Immutable, versioned view of the product catalog. A new instance is built for every
+ * catalog write and swapped in by {@link CatalogSnapshotService}; readers never see a
+ * partially updated catalog. Stock updates only advance {@code stockVersion}: responses that
+ * do not show stock stay valid across them.
+ */
+@Getter
+public final class CatalogSnapshot {
+
+    private final long version;
+    private final long stockVersion;
+    private final List<ProductDTO> products;
+    private final Map<Long, ProductDTO> productsById;
+    private final Map<Long, List<Long>> productIdsByCategory;
+    private final Map<Long, List<Long>> productIdsByBrand;
+    private final Map<ProductSort, List<ProductDTO>> orderings;
+    // The same orderings split per category and per brand, so a filtered page never walks the whole catalog
+    private final Map<ProductSort, Map<Long, List<ProductDTO>>> categoryOrderings;
+    private final Map<ProductSort, Map<Long, List<ProductDTO>>> brandOrderings;
+
+    CatalogSnapshot(long version, Collection<ProductDTO> source) {
+        List<ProductDTO> sorted = source.stream()
+                .sorted(Comparator.comparing(ProductDTO::getId))
+                .toList();
+
+        Map<Long, ProductDTO> byId = new LinkedHashMap<>();
+        Map<Long, List<Long>> byCategory = new HashMap<>();
+        Map<Long, List<Long>> byBrand = new HashMap<>();
+        for (ProductDTO product : sorted) {
+            byId.put(product.getId(), product);
+            if (product.getCategoryId() != null) {
+                byCategory.computeIfAbsent(product.getCategoryId(), k -> new ArrayList<>()).add(product.getId());
+            }
+            if (product.getBrandId() != null) {
+                byBrand.computeIfAbsent(product.getBrandId(), k -> new ArrayList<>()).add(product.getId());
+            }
+        }
+
+        this.version = version;
+        this.stockVersion = 0;
+        this.products = sorted;
+        this.productsById = Collections.unmodifiableMap(byId);
+        this.productIdsByCategory = freeze(byCategory);
+        this.productIdsByBrand = freeze(byBrand);
+
+        Map<ProductSort, List<ProductDTO>> sortedViews = new EnumMap<>(ProductSort.class);
+        Map<ProductSort, Map<Long, List<ProductDTO>>> categoryViews = new EnumMap<>(ProductSort.class);
+        Map<ProductSort, Map<Long, List<ProductDTO>>> brandViews = new EnumMap<>(ProductSort.class);
+        for (ProductSort sort : ProductSort.values()) {
+            List<ProductDTO> ordering = sorted.stream().sorted(sort.comparator()).toList();
+            sortedViews.put(sort, ordering);
+            categoryViews.put(sort, split(ordering, ProductDTO::getCategoryId));
+            brandViews.put(sort, split(ordering, ProductDTO::getBrandId));
+        }
+        this.orderings = Collections.unmodifiableMap(sortedViews);
+        this.categoryOrderings = Collections.unmodifiableMap(categoryViews);
+        this.brandOrderings = Collections.unmodifiableMap(brandViews);
+    }
+
+    // Same products in the same positions; only the DTOs in byId differ, and none of the sort keys is stock
+    private CatalogSnapshot(CatalogSnapshot base, Map<Long, ProductDTO> byId) {
+        this.version = base.version;
+        this.stockVersion = base.stockVersion + 1;
+        this.products = base.products.stream().map(product -> byId.get(product.getId())).toList();
+        this.productsById = Collections.unmodifiableMap(byId);
+        this.productIdsByCategory = base.productIdsByCategory;
+        this.productIdsByBrand = base.productIdsByBrand;
+
+        Map<ProductSort, List<ProductDTO>> views = new EnumMap<>(ProductSort.class);
+        Map<ProductSort, Map<Long, List<ProductDTO>>> categoryViews = new EnumMap<>(ProductSort.class);
+        Map<ProductSort, Map<Long, List<ProductDTO>>> brandViews = new EnumMap<>(ProductSort.class);
+        for (ProductSort sort : ProductSort.values()) {
+            List<ProductDTO> ordering = base.orderings.get(sort).stream().map(product -> byId.get(product.getId())).toList();
+            views.put(sort, ordering);
+            categoryViews.put(sort, split(ordering, ProductDTO::getCategoryId));
+            brandViews.put(sort, split(ordering, ProductDTO::getBrandId));
+        }
+        this.orderings = Collections.unmodifiableMap(views);
+        this.categoryOrderings = Collections.unmodifiableMap(categoryViews);
+        this.brandOrderings = Collections.unmodifiableMap(brandViews);
+    }
+
+    public Optional<ProductDTO> findProduct(Long id) {
+        return Optional.ofNullable(productsById.get(id));
+    }
+
+    public List<ProductDTO> getProductsByCategory(Long categoryId) {
+        return resolve(productIdsByCategory.getOrDefault(categoryId, List.of()));
+    }
+
+    public List<ProductDTO> getProductsByBrand(Long brandId) {
+        return resolve(productIdsByBrand.getOrDefault(brandId, List.of()));
+    }
+
+    public List<ProductDTO> getOrdering(ProductSort sort) {
+        return orderings.get(sort);
+    }
+
+    public List<ProductDTO> getCategoryOrdering(ProductSort sort, Long categoryId) {
+        return categoryOrderings.get(sort).getOrDefault(categoryId, List.of());
+    }
+
+    public List<ProductDTO> getBrandOrdering(ProductSort sort, Long brandId) {
+        return brandOrderings.get(sort).getOrDefault(brandId, List.of());
+    }
+
+    CatalogSnapshot nextVersion() {
+        return new CatalogSnapshot(version + 1, products);
+    }
+
+    CatalogSnapshot withProduct(ProductDTO product) {
+        Map<Long, ProductDTO> next = new LinkedHashMap<>(productsById);
+        next.put(product.getId(), product);
+        return new CatalogSnapshot(version + 1, next.values());
+    }
+
+    // Returns this snapshot when no stock level differs
+    CatalogSnapshot withStock(Map<Long, Integer> stock) {
+        Map<Long, ProductDTO> next = new LinkedHashMap<>(productsById);
+        boolean changed = false;
+        for (Map.Entry<Long, Integer> level : stock.entrySet()) {
+            ProductDTO product = next.get(level.getKey());
+            if (product != null && !Objects.equals(product.getStock(), level.getValue())) {
+                next.put(product.getId(), product.toBuilder().stock(level.getValue()).build());
+                changed = true;
+            }
+        }
+        return changed ? new CatalogSnapshot(this, next) : this;
+    }
+
+    CatalogSnapshot withoutProduct(Long id) {
+        Map<Long, ProductDTO> next = new LinkedHashMap<>(productsById);
+        next.remove(id);
+        return new CatalogSnapshot(version + 1, next.values());
+    }
+
+    private List<ProductDTO> resolve(List<Long> ids) {
+        return ids.stream().map(productsById::get).toList();
+    }
+
+    // Keeps the order of the given list within every group
+    private static Map<Long, List<ProductDTO>> split(List<ProductDTO> ordering, Function<ProductDTO, Long> key) {
+        Map<Long, List<ProductDTO>> groups = new HashMap<>();
+        for (ProductDTO product : ordering) {
+            Long id = key.apply(product);
+            if (id != null) {
+                groups.computeIfAbsent(id, k -> new ArrayList<>()).add(product);
+            }
+        }
+        groups.replaceAll((id, products) -> List.copyOf(products));
+        return Collections.unmodifiableMap(groups);
+    }
+
+    private static Map<Long, List<Long>> freeze(Map<Long, List<Long>> source) {
+        Map<Long, List<Long>> frozen = new HashMap<>();
+        source.forEach((key, ids) -> frozen.put(key, List.copyOf(ids)));
+        return Collections.unmodifiableMap(frozen);
+    }
+}
@@ -0,0 +1,239 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.CatalogVersion;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.repository.CatalogVersionRepository;
+import com.backend.smartshop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the catalog snapshot every read is served from. Writes on this node are applied to it
+ * directly; writes on other nodes are noticed by comparing the cluster-wide versions in
+ * {@link CatalogVersion} every {@code application.catalog.version-check-ms}, which reloads the
+ * catalog or just its stock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogSnapshotService {
+
+    private final ProductRepository repository;
+    private final CatalogVersionRepository versionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile CatalogSnapshot current;
+
+    // The cluster-wide versions (CatalogVersion) the current snapshot reflects. Written only while
+    // holding this service's lock, and always after the snapshot it describes has been published
+    private volatile Versions synced = new Versions(-1, -1);
+
+    private record Versions(long catalog, long stock) {
+    }
+
+    // Products whose stock changed through checkout since the last refresh
+    private final Set<Long> staleStock = ConcurrentHashMap.newKeySet();
+
+    public CatalogSnapshot current() {
+        CatalogSnapshot snapshot = current;
+        return snapshot != null ? snapshot : load();
+    }
+
+    private synchronized CatalogSnapshot load() {
+        if (current != null) {
+            return current;
+        }
+        Versions versions = readVersions();
+        CatalogSnapshot snapshot = reload();
+        synced = versions;
+        return snapshot;
+    }
+
+    // Derived from the database versions, so every node answers the same ETag for the same catalog
+    public String etag() {
+        current();
+        Versions versions = synced;
+        return "\"" + versions.catalog() + "." + versions.stock() + "\"";
+    }
+
+    // DataInitializer seeds the catalog from a CommandLineRunner, so build once it has finished.
+    // The seed is written without a version bump, so starting a node advances the version and any
+    // other node reloads on its next check
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        synchronized (this) {
+            Versions versions = advance(false);
+            reload();
+            synced = versions;
+        }
+    }
+
+    // Checkout changes stock constantly; the changes are coalesced into at most one snapshot per
+    // refresh interval instead of a new catalog version per order
+    public void stockChanged(Collection<Long> productIds) {
+        staleStock.addAll(productIds);
+    }
+
+    public synchronized CatalogSnapshot reload() {
+        List<ProductDTO> products = repository.findAllWithDetails().stream()
+                .map(ProductDTO::fromEntity)
+                .toList();
+        long version = current != null ? current.getVersion() + 1 : 1;
+        return swap(new CatalogSnapshot(version, products));
+    }
+
+    @Scheduled(fixedDelayString = "${application.catalog.stock-refresh-ms:2000}",
+            initialDelayString = "${application.catalog.stock-refresh-ms:2000}")
+    void refreshStock() {
+        try {
+            if (staleStock.isEmpty()) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>(staleStock);
+            staleStock.removeAll(ids);
+            // The reservations are committed, so nodes that see the new stock version read the new stock
+            Versions versions = advance(true);
+            synchronized (this) {
+                // Another node's checkouts advanced it too; their products are unknown, so all stock is read
+                boolean onlyOurs = versions.stock() == synced.stock() + 1;
+                applyStock(stockLevels(onlyOurs ? repository.findStockByIdIn(ids) : repository.findAllStock()));
+                synced = new Versions(synced.catalog(), Math.max(synced.stock(), versions.stock()));
+            }
+        } catch (RuntimeException e) {
+            log.error("Catalog stock refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Picks up product, category, brand and stock changes made on other nodes
+    @Scheduled(fixedDelayString = "${application.catalog.version-check-ms:5000}",
+            initialDelayString = "${application.catalog.version-check-ms:5000}")
+    void checkVersions() {
+        // Nothing to compare before warmUp() has built the first snapshot
+        if (current == null) {
+            return;
+        }
+        try {
+            Versions latest = readVersions();
+            synchronized (this) {
+                Versions versions = synced;
+                if (latest.catalog() > versions.catalog()) {
+                    log.info("Catalog changed on another node (v{} -> v{}), reloading", versions.catalog(), latest.catalog());
+                    reload();
+                    synced = latest;
+                } else if (latest.stock() > versions.stock()) {
+                    applyStock(stockLevels(repository.findAllStock()));
+                    synced = new Versions(versions.catalog(), latest.stock());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Catalog version check failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static Map<Long, Integer> stockLevels(List<ProductRepository.StockLevel> levels) {
+        Map<Long, Integer> stock = new HashMap<>();
+        levels.forEach(level -> stock.put(level.getId(), level.getStock()));
+        return stock;
+    }
+
+    // Published as a CatalogStockChangedEvent, so listeners that do not use stock never see it
+    private synchronized void applyStock(Map<Long, Integer> stock) {
+        CatalogSnapshot previous = current();
+        CatalogSnapshot next = previous.withStock(stock);
+        if (next == previous) {
+            return;
+        }
+        current = next;
+        Set<Long> changed = stock.keySet().stream()
+                .filter(id -> next.getProductsById().get(id) != previous.getProductsById().get(id))
+                .collect(Collectors.toSet());
+        eventPublisher.publishEvent(new CatalogStockChangedEvent(previous, next, changed));
+        log.debug("Catalog stock v{}.{} published for {} products", next.getVersion(), next.getStockVersion(), changed.size());
+    }
+
+    public synchronized void productSaved(Product product) {
+        versioned(snapshot -> snapshot.withProduct(ProductDTO.fromEntity(product)));
+    }
+
+    public synchronized void productDeleted(Long id) {
+        versioned(snapshot -> snapshot.withoutProduct(id));
+    }
+
+    // A new category or brand changes catalog responses but none of the product DTOs
+    public synchronized void metadataChanged() {
+        versioned(CatalogSnapshot::nextVersion);
+    }
+
+    // Called after a catalog write has committed. The change is applied locally unless another node
+    // also wrote since the last check, in which case a reload picks up both
+    private void versioned(UnaryOperator<CatalogSnapshot> change) {
+        CatalogSnapshot snapshot = current();
+        Versions versions = advance(false);
+        if (versions.catalog() == synced.catalog() + 1) {
+            swap(change.apply(snapshot));
+        } else {
+            reload();
+        }
+        synced = new Versions(versions.catalog(), synced.stock());
+    }
+
+    private Versions readVersions() {
+        CatalogVersion row = versionRepository.findById(CatalogVersion.ID).orElseGet(this::createVersionRow);
+        return new Versions(row.getVersion(), row.getStockVersion());
+    }
+
+    private CatalogVersion createVersionRow() {
+        try {
+            return versionRepository.saveAndFlush(CatalogVersion.builder()
+                    .id(CatalogVersion.ID)
+                    .version(1)
+                    .stockVersion(1)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Created by another node starting at the same time
+            return versionRepository.findById(CatalogVersion.ID).orElseThrow();
+        }
+    }
+
+    // Increments the catalog or the stock version and returns both as committed
+    private Versions advance(boolean stock) {
+        readVersions();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            if (stock) {
+                versionRepository.incrementStockVersion(CatalogVersion.ID);
+            } else {
+                versionRepository.incrementVersion(CatalogVersion.ID);
+            }
+            CatalogVersion row = versionRepository.findById(CatalogVersion.ID).orElseThrow();
+            return new Versions(row.getVersion(), row.getStockVersion());
+        });
+    }
+
+    private CatalogSnapshot swap(CatalogSnapshot next) {
+        CatalogSnapshot previous = current;
+        current = next;
+        eventPublisher.publishEvent(new CatalogChangedEvent(previous, next));
+        log.debug("Catalog snapshot v{} published with {} products", next.getVersion(), next.getProducts().size());
+        return next;
+    }
+}
@@ -0,0 +1,11 @@
+package com.backend.smartshop.service;
+
+import java.util.Set;
+
+/**
+ * Published by {@link CatalogSnapshotService} when only stock levels changed. The snapshot keeps
+ * its catalog version, and no {@link CatalogChangedEvent} is published for it, so indexes built
+ * from names, prices or specifications are not touched by checkout traffic.
+ */
+public record CatalogStockChangedEvent(CatalogSnapshot previous, CatalogSnapshot current, Set<Long> productIds) {
+}
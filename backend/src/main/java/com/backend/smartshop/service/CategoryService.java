@@ -12,6 +12,7 @@ import java.util.List;
 public class CategoryService {
 
     private final CategoryRepository repository;
+    private final CatalogSnapshotService catalog;
 
     public List<Category> getAllCategories() {
         return repository.findAll();
@@ -23,7 +24,9 @@ public class CategoryService {
     }
 
     public Category createCategory(Category category) {
-        return repository.save(category);
+        Category saved = repository.save(category);
+        catalog.metadataChanged();
+        return saved;
     }
 
     public Category updateCategory(Long id, Category categoryDetails) {
@@ -34,10 +37,14 @@ public class CategoryService {
         category.setDescription(categoryDetails.getDescription());
         category.setIconName(categoryDetails.getIconName());
 
-        return repository.save(category);
+        Category saved = repository.save(category);
+        // Product DTOs embed the category name
+        catalog.reload();
+        return saved;
     }
 
     public void deleteCategory(Long id) {
         repository.deleteById(id);
+        catalog.reload();
     }
 }
@@ -0,0 +1,140 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.EmailType;
+import com.backend.smartshop.domain.OutboxMessage;
+import com.backend.smartshop.domain.OutboxStatus;
+import com.backend.smartshop.dto.OrderResponse;
+import com.backend.smartshop.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Transactional outbox for order emails. {@link #enqueue} stores the message in the caller's
+ * transaction, so an email exists exactly when its order does and survives restarts. A scheduled
+ * poll claims due messages and hands them to a small bounded pool; failed sends are retried
+ * with exponential backoff and parked as DEAD after the last attempt.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutbox {
+
+    private static final List<OutboxStatus> DISPATCHABLE = List.of(OutboxStatus.PENDING, OutboxStatus.SENDING);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxMessageRepository repository;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler taskScheduler;
+
+    @Qualifier("emailOutboxExecutor")
+    private final ThreadPoolTaskExecutor workers;
+
+    @Value("${application.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${application.outbox.initial-backoff-ms:30000}")
+    private long initialBackoffMs;
+
+    @Value("${application.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    // A message still SENDING after this long is assumed lost with its node and sent again
+    @Value("${application.outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    public void enqueue(EmailType type, OrderResponse order) {
+        try {
+            repository.save(OutboxMessage.builder()
+                    .type(type)
+                    .orderId(order.getId())
+                    .payload(objectMapper.writeValueAsString(order))
+                    .status(OutboxStatus.PENDING)
+                    .nextAttemptAt(LocalDateTime.now())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize order " + order.getOrderCode() + " for the email outbox", e);
+        }
+    }
+
+    // Call after the enqueuing transaction commits to send right away instead of on the next poll
+    public void wakeUp() {
+        taskScheduler.schedule(this::poll, Instant.now());
+    }
+
+    // Synchronized, as a wake-up may run on another scheduler thread than the timed poll
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval-ms:5000}",
+            initialDelayString = "${application.outbox.poll-interval-ms:5000}")
+    synchronized void poll() {
+        try {
+            // Claim only what the pool can queue, so claimed messages never wait out their lease in memory
+            int capacity = workers.getThreadPoolExecutor().getQueue().remainingCapacity();
+            if (capacity == 0) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime leaseUntil = now.plus(Duration.ofMillis(leaseMs));
+            for (Long id : repository.findDueIds(DISPATCHABLE, now, PageRequest.of(0, capacity))) {
+                if (repository.claim(id, DISPATCHABLE, OutboxStatus.SENDING, now, leaseUntil) == 1) {
+                    workers.execute(() -> deliver(id));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Email outbox poll failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void deliver(Long id) {
+        OutboxMessage message = repository.findById(id).orElse(null);
+        if (message == null || message.getStatus() != OutboxStatus.SENDING) {
+            return;
+        }
+
+        try {
+            OrderResponse order = objectMapper.readValue(message.getPayload(), OrderResponse.class);
+            switch (message.getType()) {
+                case ORDER_CONFIRMATION -> emailService.sendOrderConfirmationEmail(order);
+                case ADMIN_NOTIFICATION -> emailService.sendAdminNotificationEmail(order);
+            }
+            message.setStatus(OutboxStatus.SENT);
+            message.setSentAt(LocalDateTime.now());
+        } catch (Exception e) {
+            recordFailure(message, e);
+        }
+        repository.save(message);
+    }
+
+    private void recordFailure(OutboxMessage message, Exception error) {
+        int attempts = message.getAttempts() + 1;
+        String reason = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+        message.setAttempts(attempts);
+        message.setLastError(reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason);
+
+        if (attempts >= maxAttempts) {
+            message.setStatus(OutboxStatus.DEAD);
+            log.error("Giving up on {} email for order {} after {} attempts: {}",
+                    message.getType(), message.getOrderId(), attempts, reason);
+            return;
+        }
+
+        long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 30));
+        message.setStatus(OutboxStatus.PENDING);
+        message.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMs)));
+        log.warn("{} email for order {} failed (attempt {}), retrying in {} ms: {}",
+                message.getType(), message.getOrderId(), attempts, backoffMs, reason);
+    }
+}
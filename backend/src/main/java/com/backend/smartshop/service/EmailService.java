@@ -74,6 +74,15 @@ public class EmailService {
                 subtotal
             ));
         }
+        if (order.getShippingCost() != null && order.getShippingCost().signum() > 0) {
+            itemsHtml.append(String.format(
+                "<tr>" +
+                "  <td colspan='3' style='padding: 12px; border-bottom: 1px solid #e5e7eb;'>Transport</td>" +
+                "  <td style='padding: 12px; border-bottom: 1px solid #e5e7eb; text-align: right; font-weight: 600;'>%.2f RON</td>" +
+                "</tr>",
+                order.getShippingCost()
+            ));
+        }
 
         String orderDate = order.getCreatedAt() != null
             ? order.getCreatedAt().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))
@@ -228,7 +237,8 @@ public class EmailService {
             log.info("Admin notification email sent to {} for order {}", adminEmail, order.getOrderCode());
         } catch (MessagingException e) {
             log.error("Failed to send admin notification email: {}", e.getMessage());
-            // Don't throw - admin notification failure shouldn't break order creation
+            // Rethrown so the email outbox schedules a retry
+            throw new RuntimeException("Failed to send email: " + e.getMessage(), e);
         }
     }
 
@@ -253,6 +263,15 @@ public class EmailService {
                 subtotal
             ));
         }
+        if (order.getShippingCost() != null && order.getShippingCost().signum() > 0) {
+            itemsHtml.append(String.format(
+                "<tr>" +
+                "  <td colspan='3' style='padding: 12px; border-bottom: 1px solid #e5e7eb;'>Transport</td>" +
+                "  <td style='padding: 12px; border-bottom: 1px solid #e5e7eb; text-align: right; font-weight: 600;'>%.2f RON</td>" +
+                "</tr>",
+                order.getShippingCost()
+            ));
+        }
 
         String orderDate = order.getCreatedAt() != null
             ? order.getCreatedAt().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))
@@ -374,7 +393,8 @@ public class EmailService {
             order.getDeliveryCity(),
             order.getDeliveryCounty() != null ? order.getDeliveryCounty() : "",
             order.getDeliveryPostalCode() != null ? order.getDeliveryPostalCode() : "",
-            order.getDeliveryCountry()
+            order.getDeliveryCountry(),
+            order.getDeliveryPostalCode() != null ? order.getDeliveryPostalCode() : ""
         );
     }
 }
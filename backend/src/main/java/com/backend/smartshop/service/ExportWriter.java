@@ -0,0 +1,116 @@
+package com.backend.smartshop.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Row-at-a-time writer for the streamed exports (product feed, order reports). The response
+ * stream belongs to the container: closing a writer flushes it but never closes the stream.
+ */
+interface ExportWriter<T> extends AutoCloseable {
+
+    void write(T row) throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    // One JSON object per line, serialized as the row's own JSON view
+    static <T> ExportWriter<T> ndjson(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        return new Ndjson<>(objectMapper, out);
+    }
+
+    static <T> ExportWriter<T> csv(OutputStream out, List<CsvColumn<T>> columns) throws IOException {
+        return new Csv<>(out, columns);
+    }
+
+    record CsvColumn<T>(String header, Function<T, ?> value) {
+    }
+
+    final class Ndjson<T> implements ExportWriter<T> {
+
+        private final JsonGenerator generator;
+
+        private Ndjson(ObjectMapper objectMapper, OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            generator.writeObject(row);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header line. Values are written with {@code toString()}, except
+     * BigDecimal which is written without an exponent.
+     */
+    final class Csv<T> implements ExportWriter<T> {
+
+        private final Writer writer;
+        private final List<CsvColumn<T>> columns;
+
+        private Csv(OutputStream out, List<CsvColumn<T>> columns) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.columns = columns;
+            for (int i = 0; i < columns.size(); i++) {
+                writeCell(i, columns.get(i).header());
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = columns.get(i).value().apply(row);
+                writeCell(i, value instanceof BigDecimal amount ? amount.toPlainString()
+                        : value != null ? value.toString() : null);
+            }
+            writer.write('\n');
+        }
+
+        private void writeCell(int index, String value) throws IOException {
+            if (index > 0) {
+                writer.write(',');
+            }
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            // Product names and delivery details come from users; spreadsheet apps would run a
+            // cell starting with one of these as a formula, so it is forced to text
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.IdempotencyKey;
+import com.backend.smartshop.domain.IdempotencyStatus;
+import com.backend.smartshop.exception.IdempotencyConflictException;
+import com.backend.smartshop.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes a request at most once per {@code Idempotency-Key}. Requests in flight on this node
+ * live in an in-memory map, where a duplicate waits on the original's result; once completed they
+ * leave it. Completed responses are replayed from a small in-memory cache of recent ones, bounded
+ * by entry count, and otherwise from the {@code _idempotency_key} table, which also covers other
+ * nodes and restarts. Failed requests release the key so the client can retry. The table row of
+ * a request in flight holds a lease that is renewed while the request runs, so a slow request is
+ * never taken over by another node; only a node that dies stops renewing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long REMOTE_POLL_MS = 100;
+    private static final int PURGE_EVERY = 256;
+
+    private final IdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+
+    // How long completed responses are replayed
+    @Value("${application.idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    // How long a duplicate waits for the original request before giving up with 409
+    @Value("${application.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    // An IN_PROGRESS row not renewed for this long belongs to a request that died with its node
+    @Value("${application.idempotency.lease-ms:60000}")
+    private long leaseMs;
+
+    // Recently completed responses kept in memory; older ones are read back from the table
+    @Value("${application.idempotency.memory-entries:1000}")
+    private int memoryEntries;
+
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    private final Map<String, Completed> recent = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+            return size() > memoryEntries;
+        }
+    };
+    private final AtomicInteger started = new AtomicInteger();
+
+    @FunctionalInterface
+    public interface Action<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    public <T, E extends Exception> T execute(String scope, String owner, String key, Object request,
+                                              Class<T> responseType, Action<T, E> action) throws E {
+        if (key == null || key.isBlank()) {
+            return action.run();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String recordKey = scope + ":" + (owner != null ? owner : "") + ":" + key;
+        String requestHash = hash(request);
+        while (true) {
+            Completed completed = recentlyCompleted(recordKey);
+            if (completed != null) {
+                checkSameRequest(completed.requestHash(), requestHash);
+                return read(completed.body(), responseType);
+            }
+
+            Execution mine = new Execution(requestHash);
+            Execution existing = executions.putIfAbsent(recordKey, mine);
+            if (existing == null) {
+                return executeOwned(recordKey, mine, responseType, action);
+            }
+
+            checkSameRequest(existing.requestHash, requestHash);
+            String body = await(existing.result);
+            if (body != null) {
+                return read(body, responseType);
+            }
+            // The original request failed and released the key; this one runs in its place
+        }
+    }
+
+    // One batch for every key this node holds in the table. The interval is well below the lease,
+    // so a renewal delayed by a slow database still lands in time
+    @Scheduled(fixedDelayString = "${application.idempotency.renew-interval-ms:15000}",
+            initialDelayString = "${application.idempotency.renew-interval-ms:15000}")
+    void renewLeases() {
+        Map<String, LocalDateTime> claims = new HashMap<>();
+        executions.forEach((recordKey, execution) -> {
+            if (execution.claimedAt != null) {
+                claims.put(recordKey, execution.claimedAt);
+            }
+        });
+        if (claims.isEmpty()) {
+            return;
+        }
+        try {
+            repository.renew(claims, LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+        } catch (RuntimeException e) {
+            log.error("Could not renew {} idempotency leases: {}", claims.size(), e.getMessage());
+        }
+    }
+
+    private <T, E extends Exception> T executeOwned(String recordKey, Execution mine, Class<T> responseType,
+                                                    Action<T, E> action) throws E {
+        purgeOccasionally();
+        IdempotencyKey completed;
+        try {
+            completed = claimOrReplay(recordKey, mine);
+        } catch (RuntimeException e) {
+            release(recordKey, mine, false);
+            throw e;
+        }
+        if (completed != null) {
+            finish(recordKey, mine, completed.getResponseBody(), completed.getExpiresAt());
+            return read(completed.getResponseBody(), responseType);
+        }
+
+        T response;
+        String body;
+        try {
+            response = action.run();
+            body = write(response);
+        } catch (Exception e) {
+            release(recordKey, mine, true);
+            throw e;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(Duration.ofMillis(ttlMs));
+        try {
+            repository.complete(recordKey, body, expiresAt);
+        } catch (RuntimeException e) {
+            // The request did run; duplicates on this node still replay from memory while it is cached
+            log.error("Could not store response for idempotency key {}: {}", recordKey, e.getMessage());
+        }
+        finish(recordKey, mine, body, expiresAt);
+        return response;
+    }
+
+    // Cached before the in-flight entry goes, so a duplicate always finds the response in one of them
+    private void finish(String recordKey, Execution mine, String body, LocalDateTime expiresAt) {
+        synchronized (recent) {
+            recent.put(recordKey, new Completed(mine.requestHash, body, expiresAt));
+        }
+        mine.result.complete(body);
+        executions.remove(recordKey, mine);
+    }
+
+    private Completed recentlyCompleted(String recordKey) {
+        synchronized (recent) {
+            Completed completed = recent.get(recordKey);
+            if (completed != null && completed.expiresAt().isBefore(LocalDateTime.now())) {
+                recent.remove(recordKey);
+                return null;
+            }
+            return completed;
+        }
+    }
+
+    // Returns the stored record of a completed request, or null once this request owns the key
+    private IdempotencyKey claimOrReplay(String recordKey, Execution mine) {
+        String requestHash = mine.requestHash;
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        while (true) {
+            // Identifies the claim when renewing it, so the stored value must compare equal
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+            Optional<IdempotencyKey> stored = repository.find(recordKey);
+            if (stored.isPresent() && stored.get().getExpiresAt().isBefore(now)) {
+                repository.deleteIfExpired(recordKey, now);
+                continue;
+            }
+            if (stored.isPresent()) {
+                checkSameRequest(stored.get().getRequestHash(), requestHash);
+                if (stored.get().getStatus() == IdempotencyStatus.COMPLETED) {
+                    return stored.get();
+                }
+            } else if (repository.insertInProgress(recordKey, requestHash, now, now.plus(Duration.ofMillis(leaseMs)))) {
+                mine.claimedAt = now;
+                return null;
+            }
+
+            // Another node is running the request
+            if (System.currentTimeMillis() > deadline) {
+                throw new IdempotencyConflictException("A request with this " + HEADER + " is still being processed");
+            }
+            sleep(REMOTE_POLL_MS);
+        }
+    }
+
+    private void release(String recordKey, Execution mine, boolean claimed) {
+        if (claimed) {
+            try {
+                repository.delete(recordKey);
+            } catch (RuntimeException e) {
+                // The row's lease runs out instead
+                log.error("Could not release idempotency key {}: {}", recordKey, e.getMessage());
+            }
+        }
+        executions.remove(recordKey, mine);
+        mine.result.complete(null);
+    }
+
+    private String await(CompletableFuture<String> result) {
+        try {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with this " + HEADER + " is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted while waiting for the original request");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void purgeOccasionally() {
+        if (started.incrementAndGet() % PURGE_EVERY != 0) {
+            return;
+        }
+        synchronized (recent) {
+            LocalDateTime now = LocalDateTime.now();
+            recent.values().removeIf(completed -> completed.expiresAt().isBefore(now));
+        }
+        int removed = repository.deleteExpired(LocalDateTime.now());
+        log.debug("Purged {} expired idempotency keys", removed);
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IllegalArgumentException(HEADER + " was already used for a different request");
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store idempotent response", e);
+        }
+    }
+
+    private <T> T read(String body, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(body.getBytes(StandardCharsets.UTF_8), responseType);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not replay idempotent response", e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private static final class Execution {
+
+        private final String requestHash;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        // Set once the table row is ours, and renewed from then on
+        private volatile LocalDateTime claimedAt;
+
+        Execution(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    private record Completed(String requestHash, String body, LocalDateTime expiresAt) {
+    }
+}
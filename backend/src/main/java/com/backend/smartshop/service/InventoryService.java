@@ -0,0 +1,180 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.domain.ReservationStatus;
+import com.backend.smartshop.domain.StockReservation;
+import com.backend.smartshop.exception.InsufficientStockException;
+import com.backend.smartshop.repository.OrderRepository;
+import com.backend.smartshop.repository.ProductStockRepository;
+import com.backend.smartshop.repository.StockReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stock reservations for checkout. Stock is taken with conditional decrements
+ * ({@code stock = stock - n WHERE stock >= n}), so concurrent buyers of the same product never
+ * read-modify-write and cannot oversell; the database serializes them on the row only for the
+ * duration of the statement and the commit. Reservations expire when an order stays unpaid.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private static final int EXPIRY_BATCH_SIZE = 100;
+
+    private final ProductStockRepository stockRepository;
+    private final StockReservationRepository reservationRepository;
+    private final OrderRepository orderRepository;
+    private final CatalogSnapshotService catalog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SalesStatsService salesStats;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${application.inventory.reservation-ttl-ms:1800000}")
+    private long reservationTtlMs;
+
+    /**
+     * Reserves stock for every line of an order in the caller's transaction, or throws
+     * {@link InsufficientStockException} if any product is short, in which case the caller rolls
+     * back the whole order.
+     */
+    @Transactional
+    public void reserve(Long orderId, Map<Long, Integer> quantities) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(Duration.ofMillis(reservationTtlMs));
+        reservationRepository.saveAll(quantities.entrySet().stream()
+                .map(line -> StockReservation.builder()
+                        .orderId(orderId)
+                        .productId(line.getKey())
+                        .quantity(line.getValue())
+                        .status(ReservationStatus.ACTIVE)
+                        .expiresAt(expiresAt)
+                        .build())
+                .toList());
+
+        // Kept last before the commit, so the product row locks are held as briefly as possible
+        List<Long> insufficient = stockRepository.decrement(quantities);
+        if (!insufficient.isEmpty()) {
+            throw new InsufficientStockException(insufficient);
+        }
+        refreshCatalogAfterCommit(quantities.keySet());
+    }
+
+    // The order is paid: its stock is sold and no longer subject to expiry
+    @Transactional
+    public void commit(Long orderId) {
+        int committed = reservationRepository.transitionOrder(orderId, ReservationStatus.ACTIVE, ReservationStatus.COMMITTED);
+        if (committed == 0 && !reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.RELEASED).isEmpty()) {
+            log.warn("Order {} was paid after its stock reservation had been released", orderId);
+        }
+    }
+
+    // Returns the order's active reservations to stock; safe to call more than once
+    @Transactional
+    public void release(Long orderId) {
+        Map<Long, Integer> released = new HashMap<>();
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.ACTIVE)) {
+            if (reservationRepository.transition(reservation.getId(), ReservationStatus.ACTIVE, ReservationStatus.RELEASED) == 1) {
+                released.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            }
+        }
+        if (!released.isEmpty()) {
+            stockRepository.increment(released);
+            refreshCatalogAfterCommit(released.keySet());
+            log.info("Released stock reserved for order {}: {}", orderId, released);
+        }
+    }
+
+    // Set-based commit() for many orders in one statement
+    @Transactional
+    public void commitAll(Collection<Long> orderIds) {
+        reservationRepository.transitionOrders(orderIds, ReservationStatus.ACTIVE, ReservationStatus.COMMITTED);
+    }
+
+    // Set-based release() for many orders: one locking read, one update, one batched stock increment
+    @Transactional
+    public void releaseAll(Collection<Long> orderIds) {
+        List<StockReservation> reservations = reservationRepository.lockByOrderIdInAndStatus(orderIds, ReservationStatus.ACTIVE);
+        if (reservations.isEmpty()) {
+            return;
+        }
+        reservationRepository.transitionAll(reservations.stream().map(StockReservation::getId).toList(),
+                ReservationStatus.ACTIVE, ReservationStatus.RELEASED);
+        Map<Long, Integer> released = new HashMap<>();
+        for (StockReservation reservation : reservations) {
+            released.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+        }
+        stockRepository.increment(released);
+        refreshCatalogAfterCommit(released.keySet());
+        log.info("Released stock reserved for {} orders: {}", orderIds.size(), released);
+    }
+
+    // Unpaid orders past their reservation TTL are cancelled and their stock released
+    @Scheduled(fixedDelayString = "${application.inventory.expiry-interval-ms:60000}",
+            initialDelayString = "${application.inventory.expiry-interval-ms:60000}")
+    void expireReservations() {
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            List<Long> orderIds;
+            do {
+                orderIds = reservationRepository.findOrderIdsExpiredBefore(
+                        ReservationStatus.ACTIVE, LocalDateTime.now(), PageRequest.of(0, EXPIRY_BATCH_SIZE));
+                for (Long orderId : orderIds) {
+                    transaction.executeWithoutResult(status -> expire(orderId));
+                }
+            } while (orderIds.size() == EXPIRY_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            log.error("Stock reservation expiry failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void expire(Long orderId) {
+        if (orderRepository.updateStatus(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED) == 1) {
+            log.info("Order {} cancelled: stock reservation expired before payment", orderId);
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, OrderStatus.CANCELLED));
+            orderRepository.findById(orderId)
+                    .ifPresent(order -> salesStats.statusChanged(order, OrderStatus.PENDING, OrderStatus.CANCELLED));
+            release(orderId);
+            return;
+        }
+        OrderStatus status = orderRepository.findStatusById(orderId).orElse(OrderStatus.CANCELLED);
+        if (status == OrderStatus.CANCELLED) {
+            release(orderId);
+        } else {
+            // Paid through a path that did not commit the reservation; the stock is sold
+            commit(orderId);
+        }
+    }
+
+    private void refreshCatalogAfterCommit(Collection<Long> productIds) {
+        Set<Long> ids = Set.copyOf(productIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            catalog.stockChanged(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                catalog.stockChanged(ids);
+            }
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.OrderCodeCounter;
+import com.backend.smartshop.repository.OrderCodeCounterRepository;
+import com.backend.smartshop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out {@code ORD-yyyyMMdd-NNNN} codes. Each node reserves a block of numbers from the
+ * day's counter row in its own short transaction and serves codes from an {@link AtomicLong}
+ * until the block runs out, so codes never collide across threads or nodes and a checkout
+ * touches the database at most once per block. Numbers left in a block when a node stops or
+ * the day rolls over are skipped, so codes are unique and increasing per node but not gapless.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderCodeAllocator {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final OrderCodeCounterRepository counterRepository;
+    private final OrderRepository orderRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${application.orders.code-block-size:20}")
+    private int blockSize;
+
+    private volatile Block block;
+
+    public String nextCode() {
+        LocalDate today = LocalDate.now();
+        while (true) {
+            Block current = block;
+            if (current != null && current.day().equals(today)) {
+                long value = current.next().getAndIncrement();
+                if (value < current.limit()) {
+                    return prefix(today) + String.format("%04d", value);
+                }
+            }
+            refill(current, today);
+        }
+    }
+
+    private synchronized void refill(Block exhausted, LocalDate day) {
+        // Another thread already replaced the block while this one waited for the lock
+        if (block != exhausted) {
+            return;
+        }
+        long start = reserve(day);
+        block = new Block(day, new AtomicLong(start), start + blockSize);
+        log.debug("Reserved order numbers {}-{} for {}", start, start + blockSize - 1, day);
+    }
+
+    // Runs outside the caller's transaction so the counter row lock is released immediately
+    private long reserve(LocalDate day) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            return transaction.execute(status -> reserveInTransaction(day));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the day's row first; it exists now, so lock and use it
+            return transaction.execute(status -> reserveInTransaction(day));
+        }
+    }
+
+    private long reserveInTransaction(LocalDate day) {
+        OrderCodeCounter counter = counterRepository.findForUpdate(day)
+                .orElseGet(() -> counterRepository.saveAndFlush(OrderCodeCounter.builder()
+                        .day(day)
+                        .nextValue(firstFreeNumber(day))
+                        .build()));
+        long start = counter.getNextValue();
+        counter.setNextValue(start + blockSize);
+        return start;
+    }
+
+    // Continues after codes issued before the day's counter row existed
+    private long firstFreeNumber(LocalDate day) {
+        String prefix = prefix(day);
+        return orderRepository.findLastOrderCode(prefix)
+                .map(code -> Long.parseLong(code.substring(prefix.length())) + 1)
+                .orElse(1L);
+    }
+
+    private static String prefix(LocalDate day) {
+        return "ORD-" + day.format(DAY_FORMAT) + "-";
+    }
+
+    private record Block(LocalDate day, AtomicLong next, long limit) {
+    }
+}
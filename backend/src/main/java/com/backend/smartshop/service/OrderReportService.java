@@ -0,0 +1,70 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.OrderReportFormat;
+import com.backend.smartshop.dto.OrderReportQuery;
+import com.backend.smartshop.dto.OrderReportRow;
+import com.backend.smartshop.repository.OrderReportRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderReportService {
+
+    private static final List<ExportWriter.CsvColumn<OrderReportRow>> CSV_COLUMNS = List.of(
+            new ExportWriter.CsvColumn<>("orderId", OrderReportRow::getOrderId),
+            new ExportWriter.CsvColumn<>("orderCode", OrderReportRow::getOrderCode),
+            new ExportWriter.CsvColumn<>("createdAt", OrderReportRow::getCreatedAt),
+            new ExportWriter.CsvColumn<>("status", OrderReportRow::getStatus),
+            new ExportWriter.CsvColumn<>("orderTotal", OrderReportRow::getOrderTotal),
+            new ExportWriter.CsvColumn<>("customerEmail", OrderReportRow::getCustomerEmail),
+            new ExportWriter.CsvColumn<>("deliveryCity", OrderReportRow::getDeliveryCity),
+            new ExportWriter.CsvColumn<>("deliveryCounty", OrderReportRow::getDeliveryCounty),
+            new ExportWriter.CsvColumn<>("productId", OrderReportRow::getProductId),
+            new ExportWriter.CsvColumn<>("productName", OrderReportRow::getProductName),
+            new ExportWriter.CsvColumn<>("quantity", OrderReportRow::getQuantity),
+            new ExportWriter.CsvColumn<>("unitPrice", OrderReportRow::getUnitPrice),
+            new ExportWriter.CsvColumn<>("lineTotal", OrderReportRow::getLineTotal));
+
+    private final OrderReportRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public void validate(OrderReportQuery query) {
+        if (query.getFrom() != null && query.getTo() != null && query.getFrom().isAfter(query.getTo())) {
+            throw new IllegalArgumentException("Intervalul raportului este invalid: from este dupa to");
+        }
+    }
+
+    public void writeReport(OrderReportQuery query, OrderReportFormat format, OutputStream out) throws IOException {
+        try (ExportWriter<OrderReportRow> writer = createWriter(format, out)) {
+            long[] count = {0};
+            repository.streamReportRows(query, row -> {
+                try {
+                    writer.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            log.info("Streamed {} order report ({} - {}, status {}, product {}) with {} lines", format,
+                    query.getFrom(), query.getTo(), query.getStatus(), query.getProductId(), count[0]);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private ExportWriter<OrderReportRow> createWriter(OrderReportFormat format, OutputStream out) throws IOException {
+        return switch (format) {
+            case NDJSON -> ExportWriter.ndjson(objectMapper, out);
+            case CSV -> ExportWriter.csv(out, CSV_COLUMNS);
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.backend.smartshop.service;
 
+import com.backend.smartshop.domain.EmailType;
 import com.backend.smartshop.domain.Order;
 import com.backend.smartshop.domain.OrderItem;
 import com.backend.smartshop.domain.OrderStatus;
@@ -7,18 +8,28 @@ import com.backend.smartshop.domain.Product;
 import com.backend.smartshop.domain.User;
 import com.backend.smartshop.dto.OrderRequest;
 import com.backend.smartshop.dto.OrderResponse;
+import com.backend.smartshop.dto.OrderSummary;
+import com.backend.smartshop.dto.OrderSummaryPage;
 import com.backend.smartshop.repository.OrderRepository;
 import com.backend.smartshop.repository.ProductRepository;
 import com.backend.smartshop.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,25 +37,76 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository repository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
-    private final EmailService emailService;
+    private final EmailOutbox emailOutbox;
+    private final InventoryService inventoryService;
+    private final SalesStatsService salesStats;
+    private final OrderCodeAllocator orderCodeAllocator;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${application.orders.shipping-cost:25}")
+    private BigDecimal shippingCost;
+
+    // Subtotal from which delivery is free
+    @Value("${application.orders.free-shipping-from:500}")
+    private BigDecimal freeShippingFrom;
 
-    public List<Order> getOrdersByUser(String email) {
+    public OrderSummaryPage getOrderSummaries(String email, String cursor, Integer size) {
         User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
-        return repository.findByUserId(user.getId());
+        int pageSize = size != null ? Math.min(Math.max(size, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                beforeId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // One extra row tells whether another page exists
+        List<OrderSummary> items = new ArrayList<>(
+                repository.findSummariesByUserId(user.getId(), beforeId, PageRequest.of(0, pageSize + 1)));
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items.remove(pageSize);
+            nextCursor = String.valueOf(items.get(pageSize - 1).getId());
+        }
+        return OrderSummaryPage.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
     }
 
-    @Transactional
     public OrderResponse createOrder(OrderRequest request, String email) {
+        // Allocated before the transaction opens: refilling a code block takes a connection of
+        // its own, which must not wait behind checkouts already holding one
+        String orderCode = orderCodeAllocator.nextCode();
+        if (request.getItems() != null) {
+            salesStats.prepare(request.getItems().stream()
+                    .filter(item -> item.getProduct() != null && item.getProduct().getId() != null)
+                    .map(item -> item.getProduct().getId())
+                    .toList());
+        }
+        OrderResponse orderResponse = new TransactionTemplate(transactionManager)
+                .execute(status -> saveOrder(request, email, orderCode));
+
+        emailOutbox.wakeUp();
+        return orderResponse;
+    }
+
+    private OrderResponse saveOrder(OrderRequest request, String email, String orderCode) {
         User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
 
         Order order = Order.builder()
                 .user(user)
-                .total(request.getTotal())
                 .status(OrderStatus.PENDING)
-                .orderCode(generateOrderCode())
+                .orderCode(orderCode)
                 .deliveryName(request.getDeliveryName())
                 .deliveryEmail(request.getDeliveryEmail())
                 .deliveryPhone(request.getDeliveryPhone())
@@ -56,86 +118,153 @@ public class OrderService {
                 .deliveryNotes(request.getDeliveryNotes())
                 .build();
 
-        List<OrderItem> orderItems = request.getItems().stream().map(itemRequest -> {
-            Product product = productRepository.findById(itemRequest.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
+        Map<Long, Product> products = resolveProducts(request.getItems());
 
-            return OrderItem.builder()
-                    .order(order)
-                    .product(product)
-                    .quantity(itemRequest.getQuantity())
-                    .price(itemRequest.getPrice())
-                    .build();
-        }).collect(Collectors.toList());
+        // Client prices and totals are ignored; each line is charged the price of the product row read
+        // in this transaction, not the in-memory quote table, which can trail a concurrent price change
+        List<OrderItem> orderItems = request.getItems().stream()
+                .map(item -> {
+                    Product product = products.get(item.getProduct().getId());
+                    return OrderItem.builder()
+                            .order(order)
+                            .product(product)
+                            .quantity(item.getQuantity())
+                            .price(product.getPrice())
+                            .build();
+                })
+                .collect(Collectors.toList());
 
+        BigDecimal subtotal = orderItems.stream()
+                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal shipping = subtotal.compareTo(freeShippingFrom) >= 0 ? BigDecimal.ZERO : shippingCost;
+        BigDecimal total = subtotal.add(shipping);
+        if (request.getTotal() != null && request.getTotal().compareTo(total) != 0) {
+            log.warn("Order {} submitted with total {} but priced at {}", orderCode, request.getTotal(), total);
+        }
+        order.setShippingCost(shipping);
+        order.setTotal(total);
         order.setItems(orderItems);
         Order savedOrder = repository.save(order);
 
+        // Confirmation to the customer and notification to the admin, sent once the order commits
+        OrderResponse orderResponse = mapToOrderResponse(savedOrder);
+        emailOutbox.enqueue(EmailType.ORDER_CONFIRMATION, orderResponse);
+        emailOutbox.enqueue(EmailType.ADMIN_NOTIFICATION, orderResponse);
+
+        // Every concurrent checkout updates the same stock and sales rollup rows, so they are
+        // written last and their row locks are held only until the commit. Throws when any
+        // product is short, which rolls back the whole order
+        Map<Long, Integer> quantities = request.getItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), OrderRequest.OrderItemRequest::getQuantity, Integer::sum));
+        inventoryService.reserve(savedOrder.getId(), quantities);
+        salesStats.orderCreated(savedOrder);
+
         log.info("Created order {} for user {}", savedOrder.getOrderCode(), email);
+        return orderResponse;
+    }
 
-        // Send confirmation email to customer and notification to admin
-        OrderResponse orderResponse = mapToOrderResponse(savedOrder);
-        try {
-            log.info("Attempting to send confirmation email to {} for order {}",
-                    orderResponse.getDeliveryEmail(), savedOrder.getOrderCode());
-            emailService.sendOrderConfirmationEmail(orderResponse);
-        } catch (Exception emailError) {
-            // Don't fail the order creation if email fails
-            log.error("✗ Failed to send confirmation email for order {} to {}: {}",
-                    savedOrder.getOrderCode(), orderResponse.getDeliveryEmail(), emailError.getMessage());
-            if (emailError.getCause() != null) {
-                log.error("Email error cause: {}", emailError.getCause().getMessage());
+    // Loads every referenced product in one query and reports all invalid lines together
+    private Map<Long, Product> resolveProducts(List<OrderRequest.OrderItemRequest> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Order must contain at least one item");
+        }
+
+        List<String> problems = new ArrayList<>();
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (int line = 0; line < items.size(); line++) {
+            OrderRequest.OrderItemRequest item = items.get(line);
+            if (item.getProduct() == null || item.getProduct().getId() == null) {
+                problems.add("Item " + (line + 1) + " has no product");
+                continue;
+            }
+            productIds.add(item.getProduct().getId());
+            if (item.getQuantity() == null || item.getQuantity() < 1) {
+                problems.add("Invalid quantity for product " + item.getProduct().getId());
             }
         }
 
-        // Send admin notification email
-        try {
-            emailService.sendAdminNotificationEmail(orderResponse);
-        } catch (Exception emailError) {
-            // Don't fail the order creation if admin notification fails
-            log.error("Failed to send admin notification email for order {}: {}",
-                    savedOrder.getOrderCode(), emailError.getMessage());
+        Map<Long, Product> products = productRepository.findByIdIn(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Long> missing = productIds.stream()
+                .filter(id -> !products.containsKey(id))
+                .toList();
+        if (!missing.isEmpty()) {
+            problems.add("Products not found: " + missing.stream().map(String::valueOf).collect(Collectors.joining(", ")));
         }
 
-        return orderResponse;
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", problems));
+        }
+        return products;
     }
 
     public OrderResponse getOrderById(Long id, String email) {
-        User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
-        Order order = repository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        if (!order.getUser().getId().equals(user.getId())) {
-            throw new RuntimeException("Unauthorized access to order");
-        }
-
-        return mapToOrderResponse(order);
+        return owned(assemble(repository.findResponseRowsByIdIn(List.of(id))), email);
     }
 
     public OrderResponse getOrderByCode(String orderCode, String email) {
-        User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
-        Order order = repository.findByOrderCode(orderCode)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        return owned(assemble(repository.findResponseRowsByOrderCode(orderCode)), email);
+    }
 
-        if (!order.getUser().getId().equals(user.getId())) {
+    // One statement for any number of orders, in id order; ids that do not exist are skipped
+    public List<OrderResponse> getOrderResponses(Collection<Long> ids) {
+        return assemble(repository.findResponseRowsByIdIn(ids)).stream()
+                .map(OwnedResponse::response)
+                .toList();
+    }
+
+    private static OrderResponse owned(List<OwnedResponse> responses, String email) {
+        if (responses.isEmpty()) {
+            throw new RuntimeException("Order not found");
+        }
+        if (!responses.get(0).ownerEmail().equals(email)) {
             throw new RuntimeException("Unauthorized access to order");
         }
-
-        return mapToOrderResponse(order);
+        return responses.get(0).response();
     }
 
-    private String generateOrderCode() {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String prefix = "ORD-" + dateStr + "-";
-        List<Order> todayOrders = repository.findAll().stream()
-                .filter(o -> o.getOrderCode() != null && o.getOrderCode().startsWith(prefix))
-                .collect(Collectors.toList());
+    private record OwnedResponse(OrderResponse response, String ownerEmail) {
+    }
 
-        int nextNumber = todayOrders.size() + 1;
-        return String.format("%s%04d", prefix, nextNumber);
+    // Rows arrive grouped by order with one row per line, or a single line-less row for an empty order
+    private static List<OwnedResponse> assemble(List<OrderRepository.OrderResponseRow> rows) {
+        Map<Long, OwnedResponse> responses = new LinkedHashMap<>();
+        for (OrderRepository.OrderResponseRow row : rows) {
+            OwnedResponse owned = responses.computeIfAbsent(row.getId(), id -> new OwnedResponse(OrderResponse.builder()
+                    .id(row.getId())
+                    .orderCode(row.getOrderCode())
+                    .total(row.getTotal())
+                    .shippingCost(row.getShippingCost())
+                    .status(row.getStatus())
+                    .createdAt(row.getCreatedAt())
+                    .deliveryName(row.getDeliveryName())
+                    .deliveryEmail(row.getDeliveryEmail())
+                    .deliveryPhone(row.getDeliveryPhone())
+                    .deliveryAddress(row.getDeliveryAddress())
+                    .deliveryCity(row.getDeliveryCity())
+                    .deliveryCounty(row.getDeliveryCounty())
+                    .deliveryPostalCode(row.getDeliveryPostalCode())
+                    .deliveryCountry(row.getDeliveryCountry())
+                    .deliveryNotes(row.getDeliveryNotes())
+                    .refundRequiredAt(row.getRefundRequiredAt())
+                    .items(new ArrayList<>())
+                    .build(), row.getOwnerEmail()));
+            if (row.getItemId() != null) {
+                owned.response().getItems().add(OrderResponse.OrderItemResponse.builder()
+                        .id(row.getItemId())
+                        .productName(row.getProductName())
+                        .quantity(row.getQuantity())
+                        .price(row.getPrice())
+                        .subtotal(row.getPrice().multiply(BigDecimal.valueOf(row.getQuantity())))
+                        .build());
+            }
+        }
+        return new ArrayList<>(responses.values());
     }
 
-    public OrderResponse mapToOrderResponse(Order order) {
+    // Only for an order built in this request, whose lines and products are already in memory
+    private OrderResponse mapToOrderResponse(Order order) {
         List<OrderResponse.OrderItemResponse> itemResponses = order.getItems().stream()
                 .map(item -> OrderResponse.OrderItemResponse.builder()
                         .id(item.getId())
@@ -150,6 +279,7 @@ public class OrderService {
                 .id(order.getId())
                 .orderCode(order.getOrderCode())
                 .total(order.getTotal())
+                .shippingCost(order.getShippingCost())
                 .status(order.getStatus())
                 .createdAt(order.getCreatedAt())
                 .deliveryName(order.getDeliveryName())
@@ -0,0 +1,10 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.OrderStatus;
+
+/**
+ * Published inside the transaction that changes an order's status; {@link OrderStatusHub}
+ * receives it only once that transaction has committed.
+ */
+public record OrderStatusChangedEvent(Long orderId, OrderStatus status) {
+}
@@ -0,0 +1,188 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.repository.OrderStatusRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process publish/subscribe for order status changes, pushed to clients as Server-Sent
+ * Events. Publishers only enqueue; a single broadcaster thread drains the queue and writes to
+ * every connection subscribed to the order, and sends a heartbeat comment to all connections
+ * when idle so dead ones are noticed and removed. Subscriptions are per node: a change made on
+ * another node reaches only that node's clients, which still see it on their next reconnect.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusHub {
+
+    // No further transitions are expected, so the stream is closed after sending these
+    private static final Set<OrderStatus> FINAL_STATUSES = Set.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
+    private final OrderStatusRepository statusRepository;
+
+    // Stopped with the context, which interrupts the broadcast loop
+    @Qualifier("orderStatusExecutor")
+    private final ThreadPoolTaskExecutor broadcaster;
+
+    @Value("${application.order-events.timeout-ms:600000}")
+    private long timeoutMs;
+
+    @Value("${application.order-events.heartbeat-ms:20000}")
+    private long heartbeatMs;
+
+    @Value("${application.order-events.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private BlockingQueue<Signal> signals;
+
+    private record Subscription(Long orderId, String orderCode, SseEmitter emitter) {
+    }
+
+    // A status change for all subscribers of an order, or the current status for a new subscriber
+    private record Signal(Long orderId, OrderStatus status, Subscription newSubscriber) {
+    }
+
+    public record StatusUpdate(Long orderId, String orderCode, OrderStatus status) {
+    }
+
+    /**
+     * Opens a stream for an order owned by the caller. The first event carries the current
+     * status, read by the broadcaster after the subscription is registered, so a change
+     * committed while subscribing is never missed.
+     */
+    public SseEmitter subscribe(String orderCode, String email) {
+        OrderStatusRepository.OrderOwner order = statusRepository.findOwnerByOrderCode(orderCode)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (!email.equals(order.ownerEmail())) {
+            throw new RuntimeException("Unauthorized access to order");
+        }
+        return subscribe(order.orderId(), order.orderCode());
+    }
+
+    private SseEmitter subscribe(Long orderId, String orderCode) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(orderId, orderCode, emitter);
+        subscriptions.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(error -> unsubscribe(subscription));
+
+        if (signals == null || !signals.offer(new Signal(orderId, null, subscription))) {
+            unsubscribe(subscription);
+            throw new IllegalStateException("Order status stream is not available");
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(OrderStatusChangedEvent event) {
+        if (signals == null || !subscriptions.containsKey(event.orderId())) {
+            return;
+        }
+        if (!signals.offer(new Signal(event.orderId(), event.status(), null))) {
+            // Clients still see the new status when they reconnect after the stream times out
+            log.warn("Order status queue full, dropped {} for order {}", event.status(), event.orderId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        signals = new ArrayBlockingQueue<>(queueCapacity);
+        broadcaster.execute(this::broadcast);
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.values().forEach(set -> set.forEach(subscription -> subscription.emitter().complete()));
+    }
+
+    private void broadcast() {
+        long nextHeartbeat = System.currentTimeMillis() + heartbeatMs;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Signal signal = signals.poll(Math.max(1, nextHeartbeat - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (signal != null) {
+                    dispatch(signal);
+                }
+                if (System.currentTimeMillis() >= nextHeartbeat) {
+                    heartbeat();
+                    nextHeartbeat = System.currentTimeMillis() + heartbeatMs;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Order status broadcast failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void dispatch(Signal signal) {
+        if (signal.newSubscriber() != null) {
+            OrderStatus current = statusRepository.findStatus(signal.orderId()).orElse(null);
+            if (current != null) {
+                send(signal.newSubscriber(), current);
+            }
+            return;
+        }
+        Set<Subscription> subscribers = subscriptions.get(signal.orderId());
+        if (subscribers != null) {
+            // Copied because a failed or final send unsubscribes while iterating
+            List.copyOf(subscribers).forEach(subscription -> send(subscription, signal.status()));
+        }
+    }
+
+    private void send(Subscription subscription, OrderStatus status) {
+        try {
+            subscription.emitter().send(SseEmitter.event()
+                    .name("status")
+                    .data(new StatusUpdate(subscription.orderId(), subscription.orderCode(), status), MediaType.APPLICATION_JSON));
+            if (FINAL_STATUSES.contains(status)) {
+                subscription.emitter().complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; the container reports the error and completes the emitter
+            unsubscribe(subscription);
+        }
+    }
+
+    private void heartbeat() {
+        for (Set<Subscription> set : subscriptions.values()) {
+            for (Subscription subscription : List.copyOf(set)) {
+                try {
+                    subscription.emitter().send(SseEmitter.event().comment("keep-alive"));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(subscription);
+                }
+            }
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.orderId(), (id, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
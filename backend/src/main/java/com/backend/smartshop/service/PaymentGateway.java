@@ -0,0 +1,38 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.exception.PaymentGatewayException;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Payment provider behind checkout, selected with {@code application.payments.gateway}:
+ * {@link StripePaymentGateway} ({@code stripe}, the default) or {@link SimulatedPaymentGateway}
+ * ({@code simulator}), which settles payments in process and sends the matching webhooks.
+ */
+public interface PaymentGateway {
+
+    enum IntentStatus {
+        REQUIRES_PAYMENT,
+        PROCESSING,
+        SUCCEEDED,
+        // Cancelled for good; a declined attempt leaves the intent in REQUIRES_PAYMENT
+        FAILED
+    }
+
+    // orderId is null for intents created without an order
+    record Intent(String id, String clientSecret, Long orderId, IntentStatus status) {
+    }
+
+    Intent createIntent(long amountMinor, String currency, Long orderId) throws PaymentGatewayException;
+
+    Intent retrieveIntent(String intentId) throws PaymentGatewayException;
+
+    // nextCursor is null on the last page
+    record IntentPage(List<Intent> intents, String nextCursor) {
+    }
+
+    // Intents created at or after since, a page of at most limit (> 0) per call; pass the previous
+    // page's nextCursor (null to start)
+    IntentPage listIntents(Instant since, String cursor, int limit) throws PaymentGatewayException;
+}
@@ -0,0 +1,228 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.PaymentGatewayStats;
+import com.backend.smartshop.exception.PaymentGatewayException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Isolates calls to the payment provider from the request threads that make them. Calls run on
+ * a small bounded pool (the bulkhead), so a slow provider can hold at most that many threads and
+ * queue slots and everything beyond is rejected at once; callers wait at most the call timeout.
+ * A count-based circuit breaker opens when too many recent calls failed for provider reasons,
+ * fails calls fast while open, and lets a few trial calls through after a pause to decide
+ * whether to close again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentGatewayGuard {
+
+    // Sized by application.payments.bulkhead.*
+    @Qualifier("paymentGatewayExecutor")
+    private final ThreadPoolTaskExecutor executor;
+
+    @Value("${application.payments.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${application.payments.circuit-breaker.window:50}")
+    private int window;
+
+    @Value("${application.payments.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${application.payments.circuit-breaker.failure-rate-percent:50}")
+    private int failureRatePercent;
+
+    @Value("${application.payments.circuit-breaker.open-ms:30000}")
+    private long openMs;
+
+    @Value("${application.payments.circuit-breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+
+    private CircuitBreaker breaker;
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T run() throws PaymentGatewayException;
+    }
+
+    @PostConstruct
+    public void start() {
+        breaker = new CircuitBreaker();
+    }
+
+    public <T> T call(String operation, Call<T> call) throws PaymentGatewayException {
+        if (!breaker.tryAcquire()) {
+            shortCircuited.increment();
+            throw new PaymentGatewayException("Payment provider unavailable, try again later", true, null);
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(call::run);
+        } catch (TaskRejectedException e) {
+            breaker.release();
+            rejected.increment();
+            log.warn("Payment {} rejected: {} calls running and {} queued", operation, executor.getActiveCount(), executor.getQueueSize());
+            throw new PaymentGatewayException("Payment provider busy, try again later", true, e);
+        }
+
+        calls.increment();
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            breaker.record(true);
+            return result;
+        } catch (TimeoutException e) {
+            // Interrupts the call; a provider call blocked in socket I/O still finishes on its own
+            future.cancel(true);
+            timeouts.increment();
+            breaker.record(false);
+            log.warn("Payment {} timed out after {} ms", operation, timeoutMs);
+            throw new PaymentGatewayException("Payment provider timed out", true, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            boolean unavailable = !(cause instanceof PaymentGatewayException failure) || failure.isUnavailable();
+            if (unavailable) {
+                failures.increment();
+            }
+            breaker.record(!unavailable);
+            throw cause instanceof PaymentGatewayException failure
+                    ? failure
+                    : new PaymentGatewayException("Payment provider error: " + cause.getMessage(), true, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            breaker.release();
+            throw new PaymentGatewayException("Interrupted while calling the payment provider", false, e);
+        }
+    }
+
+    public PaymentGatewayStats getStats() {
+        return PaymentGatewayStats.builder()
+                .circuitState(breaker.state().name())
+                .failureRate(breaker.failureRate())
+                .activeCalls(executor.getActiveCount())
+                .queuedCalls(executor.getQueueSize())
+                .queueCapacity(executor.getQueueCapacity())
+                .calls(calls.sum())
+                .failures(failures.sum())
+                .timeouts(timeouts.sum())
+                .rejected(rejected.sum())
+                .shortCircuited(shortCircuited.sum())
+                .build();
+    }
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // Outcomes of the last `window` calls in a ring buffer; all access is synchronized and O(1)
+    private final class CircuitBreaker {
+
+        private final boolean[] outcomes = new boolean[window];
+        private int next;
+        private int recorded;
+        private int failed;
+        private State state = State.CLOSED;
+        private long openUntil;
+        private int trialsStarted;
+        private int trialsSucceeded;
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() < openUntil) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsStarted >= halfOpenCalls) {
+                    return false;
+                }
+                trialsStarted++;
+            }
+            return true;
+        }
+
+        // The acquired call never reached the provider
+        synchronized void release() {
+            if (state == State.HALF_OPEN && trialsStarted > 0) {
+                trialsStarted--;
+            }
+        }
+
+        synchronized void record(boolean success) {
+            switch (state) {
+                case HALF_OPEN -> {
+                    if (!success) {
+                        open();
+                    } else if (++trialsSucceeded >= halfOpenCalls) {
+                        transition(State.CLOSED);
+                    }
+                }
+                case CLOSED -> {
+                    if (recorded == outcomes.length) {
+                        failed -= outcomes[next] ? 0 : 1;
+                    } else {
+                        recorded++;
+                    }
+                    outcomes[next] = success;
+                    failed += success ? 0 : 1;
+                    next = (next + 1) % outcomes.length;
+                    if (recorded >= minimumCalls && failed * 100 >= failureRatePercent * recorded) {
+                        open();
+                    }
+                }
+                // Calls started before the circuit opened; they do not change the decision
+                case OPEN -> {
+                }
+            }
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized double failureRate() {
+            return recorded == 0 ? 0 : (double) failed / recorded;
+        }
+
+        private void open() {
+            openUntil = System.currentTimeMillis() + openMs;
+            transition(State.OPEN);
+        }
+
+        private void transition(State target) {
+            log.warn("Payment provider circuit {} -> {}", state, target);
+            state = target;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+            if (target == State.CLOSED) {
+                next = 0;
+                recorded = 0;
+                failed = 0;
+            }
+        }
+    }
+}
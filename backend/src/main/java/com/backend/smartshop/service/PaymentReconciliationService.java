@@ -0,0 +1,273 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.domain.WebhookEventStatus;
+import com.backend.smartshop.dto.ReconciliationReport;
+import com.backend.smartshop.dto.ReconciliationReport.Action;
+import com.backend.smartshop.exception.PaymentGatewayException;
+import com.backend.smartshop.repository.OrderRepository;
+import com.backend.smartshop.repository.OrderRepository.OrderState;
+import com.backend.smartshop.repository.StripeWebhookEventRepository;
+import com.backend.smartshop.repository.StripeWebhookEventRepository.OrderEvent;
+import com.backend.smartshop.service.PaymentGateway.IntentPage;
+import com.backend.smartshop.service.PaymentGateway.IntentStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Finds orders whose status disagrees with their payment and repairs what can be repaired.
+ * Payment states come in bulk: one paged listing of the provider's intents for the whole run
+ * and one query on the webhook event table per chunk of orders, never a lookup per order.
+ * Orders are read in keyset-paged chunks and each chunk's transitions are applied with
+ * set-based updates in their own short transaction: a paid PENDING order becomes PROCESSING,
+ * a PENDING order whose payment failed is cancelled, and a PROCESSING order without a
+ * successful payment is reported for review.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentReconciliationService {
+
+    // PROCESSING first, so orders this run marks paid are not checked a second time
+    private static final List<OrderStatus> OPEN = List.of(OrderStatus.PROCESSING, OrderStatus.PENDING);
+    private static final Set<WebhookEventStatus> UNPROCESSED = Set.of(WebhookEventStatus.RECEIVED, WebhookEventStatus.PROCESSING);
+    private static final String SUCCEEDED_EVENT = "payment_intent.succeeded";
+    // Declines (payment_intent.payment_failed) leave the intent open and settle nothing
+    private static final String CANCELED_EVENT = "payment_intent.canceled";
+    // Intents may be created slightly before the order's timestamp on another clock
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private final OrderRepository orderRepository;
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final PaymentGateway paymentGateway;
+    private final PaymentGatewayGuard gatewayGuard;
+    private final StripeService stripeService;
+    private final TaskScheduler taskScheduler;
+
+    // Zero or less disables the schedule; runs can still be started from the admin API
+    @Value("${application.payments.reconciliation.interval-ms:900000}")
+    private long intervalMs;
+
+    @Value("${application.payments.reconciliation.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${application.payments.reconciliation.lookback-ms:604800000}")
+    private long lookbackMs;
+
+    // Younger orders may still be paying and are left to the regular flow
+    @Value("${application.payments.reconciliation.min-age-ms:600000}")
+    private long minAgeMs;
+
+    @Value("${application.payments.reconciliation.use-provider:true}")
+    private boolean useProvider;
+
+    @Value("${application.payments.reconciliation.provider-page-size:100}")
+    private int providerPageSize;
+
+    @Value("${application.payments.reconciliation.max-reported:100}")
+    private int maxReported;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReconciliationReport lastReport;
+
+    // Scheduled by hand rather than with @Scheduled, as a zero interval turns the schedule off
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (intervalMs > 0) {
+            taskScheduler.scheduleWithFixedDelay(this::run, Instant.now().plusMillis(intervalMs), Duration.ofMillis(intervalMs));
+        }
+    }
+
+    // Starts a run in the background; false when one is already running
+    public boolean trigger() {
+        if (running.get()) {
+            return false;
+        }
+        taskScheduler.schedule(this::run, Instant.now());
+        return true;
+    }
+
+    public Optional<ReconciliationReport> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    private void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lastReport = reconcile();
+            log.info("Payment reconciliation checked {} orders: {} marked paid, {} cancelled, {} awaiting payment, {} need review",
+                    lastReport.getOrdersChecked(), lastReport.getMarkedPaid(), lastReport.getCancelled(),
+                    lastReport.getAwaitingPayment(), lastReport.getNeedsReview());
+        } catch (RuntimeException e) {
+            log.error("Payment reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationReport reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minus(Duration.ofMillis(lookbackMs));
+        LocalDateTime to = now.minus(Duration.ofMillis(minAgeMs));
+        ReconciliationReport report = ReconciliationReport.builder()
+                .startedAt(now)
+                .discrepancies(new ArrayList<>())
+                .build();
+
+        Optional<LocalDateTime> oldest = orderRepository.findOldestCreatedAt(OPEN, from, to);
+        if (oldest.isEmpty()) {
+            report.setFinishedAt(LocalDateTime.now());
+            return report;
+        }
+        Map<Long, IntentStatus> providerStatuses = Map.of();
+        if (useProvider) {
+            try {
+                providerStatuses = listProvider(oldest.get().minus(CLOCK_SKEW), report);
+                report.setProviderChecked(true);
+            } catch (PaymentGatewayException e) {
+                // Webhook events alone can still settle orders, but a missing payment proves nothing
+                report.setError("Provider listing failed: " + e.getMessage());
+                log.warn("Payment reconciliation continues without the provider: {}", e.getMessage());
+            }
+        }
+
+        long firstId = orderRepository.findFirstIdCreatedFrom(from).orElse(1L);
+        long lastId = orderRepository.findLastIdCreatedBefore(to).orElse(0L);
+        for (OrderStatus status : OPEN) {
+            long afterId = firstId - 1;
+            List<OrderState> chunk;
+            do {
+                chunk = orderRepository.findStates(status, afterId, lastId, PageRequest.of(0, chunkSize));
+                if (!chunk.isEmpty()) {
+                    reconcileChunk(chunk, providerStatuses, report);
+                    afterId = chunk.get(chunk.size() - 1).getId();
+                }
+            } while (chunk.size() == chunkSize);
+        }
+
+        report.setFinishedAt(LocalDateTime.now());
+        return report;
+    }
+
+    private Map<Long, IntentStatus> listProvider(LocalDateTime since, ReconciliationReport report) throws PaymentGatewayException {
+        Map<Long, IntentStatus> statuses = new HashMap<>();
+        String cursor = null;
+        do {
+            String pageCursor = cursor;
+            IntentPage page = gatewayGuard.call("list",
+                    () -> paymentGateway.listIntents(since.atZone(ZoneId.systemDefault()).toInstant(), pageCursor, providerPageSize));
+            for (PaymentGateway.Intent intent : page.intents()) {
+                if (intent.orderId() != null) {
+                    statuses.merge(intent.orderId(), intent.status(), PaymentReconciliationService::stronger);
+                }
+            }
+            report.setIntentsListed(report.getIntentsListed() + page.intents().size());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return statuses;
+    }
+
+    private void reconcileChunk(List<OrderState> chunk, Map<Long, IntentStatus> providerStatuses, ReconciliationReport report) {
+        Map<Long, OrderState> orders = chunk.stream().collect(Collectors.toMap(OrderState::getId, order -> order));
+        Map<Long, IntentStatus> statuses = new HashMap<>();
+        Set<Long> awaitingWebhook = new HashSet<>();
+        for (OrderEvent event : webhookEventRepository.findByOrderIdIn(orders.keySet())) {
+            if (UNPROCESSED.contains(event.getStatus())) {
+                awaitingWebhook.add(event.getOrderId());
+            } else if (SUCCEEDED_EVENT.equals(event.getType())) {
+                statuses.merge(event.getOrderId(), IntentStatus.SUCCEEDED, PaymentReconciliationService::stronger);
+            } else if (CANCELED_EVENT.equals(event.getType())) {
+                statuses.merge(event.getOrderId(), IntentStatus.FAILED, PaymentReconciliationService::stronger);
+            }
+        }
+
+        List<Long> toPay = new ArrayList<>();
+        List<Long> toCancel = new ArrayList<>();
+        for (OrderState order : chunk) {
+            // The webhook pipeline still has an event for this order and will settle it
+            if (awaitingWebhook.contains(order.getId())) {
+                continue;
+            }
+            IntentStatus payment = stronger(statuses.get(order.getId()), providerStatuses.get(order.getId()));
+            if (order.getStatus() == OrderStatus.PENDING) {
+                if (payment == IntentStatus.SUCCEEDED) {
+                    toPay.add(order.getId());
+                } else if (payment == IntentStatus.FAILED) {
+                    toCancel.add(order.getId());
+                } else {
+                    report.setAwaitingPayment(report.getAwaitingPayment() + 1);
+                }
+            } else if (payment != IntentStatus.SUCCEEDED && payment != IntentStatus.PROCESSING
+                    && (payment != null || report.isProviderChecked())) {
+                report.setNeedsReview(report.getNeedsReview() + 1);
+                addDiscrepancy(report, order, payment, Action.REVIEW);
+            }
+        }
+
+        if (!toPay.isEmpty()) {
+            List<Long> paid = stripeService.markAllPaid(toPay);
+            report.setMarkedPaid(report.getMarkedPaid() + paid.size());
+            paid.forEach(id -> addDiscrepancy(report, orders.get(id), IntentStatus.SUCCEEDED, Action.MARKED_PAID));
+        }
+        if (!toCancel.isEmpty()) {
+            List<Long> cancelled = stripeService.markAllFailed(toCancel);
+            report.setCancelled(report.getCancelled() + cancelled.size());
+            cancelled.forEach(id -> addDiscrepancy(report, orders.get(id), IntentStatus.FAILED, Action.CANCELLED));
+        }
+        report.setOrdersChecked(report.getOrdersChecked() + chunk.size());
+    }
+
+    private void addDiscrepancy(ReconciliationReport report, OrderState order, IntentStatus payment, Action action) {
+        if (report.getDiscrepancies().size() < maxReported) {
+            if (action == Action.REVIEW) {
+                log.warn("Order {} is {} but its payment is {}", order.getOrderCode(), order.getStatus(), payment != null ? payment : "missing");
+            }
+            report.getDiscrepancies().add(ReconciliationReport.Discrepancy.builder()
+                    .orderId(order.getId())
+                    .orderCode(order.getOrderCode())
+                    .orderStatus(order.getStatus())
+                    .paymentStatus(payment != null ? payment.name() : "NONE")
+                    .action(action)
+                    .build());
+        }
+    }
+
+    // With several payment attempts for one order, the most advanced one decides
+    private static IntentStatus stronger(IntentStatus a, IntentStatus b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return rank(a) >= rank(b) ? a : b;
+    }
+
+    private static int rank(IntentStatus status) {
+        return switch (status) {
+            case SUCCEEDED -> 3;
+            case PROCESSING -> 2;
+            case REQUIRES_PAYMENT -> 1;
+            case FAILED -> 0;
+        };
+    }
+}
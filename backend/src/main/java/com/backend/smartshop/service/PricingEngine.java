@@ -0,0 +1,120 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.CartQuote;
+import com.backend.smartshop.dto.CartQuoteRequest;
+import com.backend.smartshop.dto.ProductDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Prices carts from an in-memory table of unit prices in bani (RON minor units), so quoting a
+ * cart never touches the database and totals are summed exactly in {@code long}. The table
+ * follows the catalog snapshot: every product write swaps in a copy with only the changed
+ * entries replaced, before the write returns. It only quotes: orders are priced from the
+ * product rows read in the checkout transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PricingEngine {
+
+    private static final int CURRENCY_SCALE = 2;
+
+    private final CatalogSnapshotService catalog;
+
+    private volatile Map<Long, Price> prices = Map.of();
+
+    public record CartLine(Long productId, int quantity) {
+    }
+
+    public record PricedLine(Long productId, String productName, int quantity, long unitPrice, long subtotal) {
+    }
+
+    public record PricedCart(List<PricedLine> lines, long total) {
+    }
+
+    private record Price(String productName, long unitPrice) {
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Map<Long, Price> next = event.previous() == null ? new HashMap<>() : new HashMap<>(prices);
+        event.removedProductIds().forEach(next::remove);
+        for (ProductDTO product : event.changedProducts()) {
+            next.put(product.getId(), new Price(product.getName(), toMinorUnits(product.getPrice())));
+        }
+        prices = next;
+        log.debug("Price table updated for catalog v{}", event.current().getVersion());
+    }
+
+    public CartQuote quote(CartQuoteRequest request) {
+        List<CartLine> lines = new ArrayList<>();
+        if (request.getItems() != null) {
+            for (CartQuoteRequest.Line line : request.getItems()) {
+                if (line.getProductId() == null || line.getQuantity() == null || line.getQuantity() < 1) {
+                    throw new IllegalArgumentException("Each cart line needs a product and a positive quantity");
+                }
+                lines.add(new CartLine(line.getProductId(), line.getQuantity()));
+            }
+        }
+
+        PricedCart cart = price(lines);
+        return CartQuote.builder()
+                .lines(cart.lines().stream()
+                        .map(line -> CartQuote.Line.builder()
+                                .productId(line.productId())
+                                .productName(line.productName())
+                                .quantity(line.quantity())
+                                .unitPrice(toAmount(line.unitPrice()))
+                                .subtotal(toAmount(line.subtotal()))
+                                .build())
+                        .toList())
+                .total(toAmount(cart.total()))
+                .build();
+    }
+
+    private PricedCart price(List<CartLine> lines) {
+        // Builds the table if nothing has published a snapshot yet
+        catalog.current();
+        Map<Long, Price> table = prices;
+
+        Set<Long> unknown = new LinkedHashSet<>();
+        List<PricedLine> priced = new ArrayList<>(lines.size());
+        long total = 0;
+        for (CartLine line : lines) {
+            Price price = table.get(line.productId());
+            if (price == null) {
+                unknown.add(line.productId());
+                continue;
+            }
+            long subtotal = Math.multiplyExact(price.unitPrice(), line.quantity());
+            total = Math.addExact(total, subtotal);
+            priced.add(new PricedLine(line.productId(), price.productName(), line.quantity(), price.unitPrice(), subtotal));
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Products not found: "
+                    + unknown.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+        }
+        return new PricedCart(priced, total);
+    }
+
+    public static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, CURRENCY_SCALE);
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(CURRENCY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,48 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.ProductSort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor: the sort order plus the sort key and id of the last product on a page.
+ * Decoding yields a probe DTO that can be binary-searched in the matching snapshot ordering.
+ */
+final class ProductCursor {
+
+    private ProductCursor() {
+    }
+
+    static String encode(ProductSort sort, ProductDTO last) {
+        String key = switch (sort) {
+            case PRICE_ASC, PRICE_DESC -> last.getPrice().toPlainString();
+            case NEWEST -> String.valueOf(last.getCreatedAt());
+            case NAME -> last.getName();
+        };
+        String raw = sort.name() + "|" + last.getId() + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ProductDTO decode(ProductSort sort, String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(sort.name())) {
+                throw new IllegalArgumentException("Cursor sort mismatch");
+            }
+            ProductDTO.ProductDTOBuilder probe = ProductDTO.builder().id(Long.parseLong(parts[1]));
+            switch (sort) {
+                case PRICE_ASC, PRICE_DESC -> probe.price(new BigDecimal(parts[2]));
+                case NEWEST -> probe.createdAt("null".equals(parts[2]) ? null : LocalDateTime.parse(parts[2]));
+                case NAME -> probe.name(parts[2]);
+            }
+            return probe.build();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursorul de paginare este invalid. Te rugam sa reincarci lista de produse.");
+        }
+    }
+}
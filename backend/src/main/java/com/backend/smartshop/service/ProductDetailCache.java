@@ -0,0 +1,113 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Product detail responses kept as ready-to-send JSON bytes, plain and gzipped. Entries are
+ * bound to the snapshot DTO they were serialized from, so a catalog write can never serve stale
+ * bytes; the cache is bounded by total byte size and evicts least recently used entries.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductDetailCache {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${application.catalog.detail-cache.max-bytes:8388608}")
+    private long maxBytes;
+
+    private final LinkedHashMap<Long, CachedJson> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    public CachedJson get(ProductDTO product) {
+        synchronized (entries) {
+            CachedJson cached = entries.get(product.getId());
+            if (cached != null && cached.product() == product) {
+                return cached;
+            }
+        }
+
+        CachedJson serialized = serialize(product);
+        synchronized (entries) {
+            CachedJson previous = entries.put(product.getId(), serialized);
+            if (previous != null) {
+                totalBytes -= previous.size();
+            }
+            totalBytes += serialized.size();
+            evictOverflow();
+        }
+        return serialized;
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        synchronized (entries) {
+            event.removedProductIds().forEach(this::evict);
+            event.changedProducts().forEach(product -> evict(product.getId()));
+        }
+    }
+
+    // The detail JSON shows stock; entries are rebuilt on their next read
+    @EventListener
+    public void onStockChanged(CatalogStockChangedEvent event) {
+        synchronized (entries) {
+            event.productIds().forEach(this::evict);
+        }
+    }
+
+    private void evict(Long id) {
+        CachedJson removed = entries.remove(id);
+        if (removed != null) {
+            totalBytes -= removed.size();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Long, CachedJson>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    private CachedJson serialize(ProductDTO product) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(product);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 2);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            byte[] gzipped = compressed.toByteArray();
+            return new CachedJson(product, json, gzipped.length < json.length ? gzipped : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize product " + product.getId(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serialized detail view; {@code gzip} is null when compression would not make it smaller.
+     */
+    public record CachedJson(ProductDTO product, byte[] json, byte[] gzip) {
+        long size() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.ProductSpecification;
+import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.ProductFacets;
+import com.backend.smartshop.dto.ProductQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Facet counts computed with bitwise intersections. Every facet value owns a bitset over the
+ * product ordinals of the current catalog snapshot; counting a facet intersects the filters of
+ * all other facets, so selecting a brand still shows how many products the other brands have.
+ */
+@Service
+@Slf4j
+public class ProductFacetIndex {
+
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            new BigDecimal("1000"), new BigDecimal("3000"), new BigDecimal("5000"), new BigDecimal("7000")
+    };
+
+    private volatile Facets current;
+
+    // The table and the stock bits over the same ordinals, swapped together
+    private record Facets(FacetTable table, BitSet inStock) {
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        List<ProductDTO> products = event.current().getProducts();
+        current = new Facets(new FacetTable(products), inStock(products));
+        log.debug("Facet index rebuilt for catalog v{}", event.current().getVersion());
+    }
+
+    // A stock update keeps every product at its position in the snapshot, so only the stock bits change
+    @EventListener
+    public void onStockChanged(CatalogStockChangedEvent event) {
+        Facets facets = current;
+        if (facets != null) {
+            current = new Facets(facets.table(), inStock(event.current().getProducts()));
+        }
+    }
+
+    public ProductFacets count(ProductQuery query, Collection<Long> searchResultIds) {
+        Facets snapshot = current;
+        if (snapshot == null) {
+            return ProductFacets.builder().total(0).build();
+        }
+        FacetTable facets = snapshot.table();
+
+        BitSet common = facets.all();
+        if (searchResultIds != null) {
+            common.and(facets.ordinalsOf(searchResultIds));
+        }
+        if (Boolean.TRUE.equals(query.getInStock())) {
+            common.and(snapshot.inStock());
+        }
+
+        BitSet category = select(facets.categories, query.getCategoryId());
+        BitSet brand = select(facets.brands, query.getBrandId());
+        BitSet price = facets.priceBetween(query.getMinPrice(), query.getMaxPrice());
+        BitSet ram = select(facets.ram, query.getRam());
+        BitSet storage = select(facets.storage, query.getStorage());
+
+        return ProductFacets.builder()
+                .total(intersect(common, category, brand, price, ram, storage).cardinality())
+                .categories(values(facets.categories, intersect(common, brand, price, ram, storage), facets.categoryNames::get))
+                .brands(values(facets.brands, intersect(common, category, price, ram, storage), facets.brandNames::get))
+                .priceRanges(values(facets.priceRanges, intersect(common, category, brand, ram, storage), FacetTable::priceLabel))
+                .ram(values(facets.ram, intersect(common, category, brand, price, storage), Function.identity()))
+                .storage(values(facets.storage, intersect(common, category, brand, price, ram), Function.identity()))
+                .build();
+    }
+
+    private static BitSet inStock(List<ProductDTO> products) {
+        BitSet bits = new BitSet(products.size());
+        for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+            Integer stock = products.get(ordinal).getStock();
+            if (stock != null && stock > 0) {
+                bits.set(ordinal);
+            }
+        }
+        return bits;
+    }
+
+    private static <K> BitSet select(Map<K, BitSet> values, K selected) {
+        if (selected == null) {
+            return null;
+        }
+        BitSet bits = values.get(selected);
+        return bits != null ? bits : new BitSet();
+    }
+
+    private static BitSet intersect(BitSet base, BitSet... filters) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static <K> List<ProductFacets.FacetValue> values(Map<K, BitSet> facet, BitSet mask,
+                                                              Function<K, String> label) {
+        List<ProductFacets.FacetValue> result = new ArrayList<>();
+        BitSet scratch = new BitSet();
+        facet.forEach((key, bits) -> {
+            scratch.clear();
+            scratch.or(bits);
+            scratch.and(mask);
+            int count = scratch.cardinality();
+            if (count > 0) {
+                result.add(ProductFacets.FacetValue.builder()
+                        .value(String.valueOf(key))
+                        .label(label.apply(key))
+                        .count(count)
+                        .build());
+            }
+        });
+        return result;
+    }
+
+    private static final class FacetTable {
+
+        private final int size;
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final BigDecimal[] prices;
+        private final Map<Long, BitSet> categories = new HashMap<>();
+        private final Map<Long, BitSet> brands = new HashMap<>();
+        private final Map<Long, String> categoryNames = new HashMap<>();
+        private final Map<Long, String> brandNames = new HashMap<>();
+        private final Map<String, BitSet> priceRanges = new LinkedHashMap<>();
+        private final Map<String, BitSet> ram;
+        private final Map<String, BitSet> storage;
+
+        FacetTable(List<ProductDTO> products) {
+            size = products.size();
+            prices = new BigDecimal[size];
+            for (int i = 0; i <= PRICE_BOUNDS.length; i++) {
+                priceRanges.put(priceKey(i), new BitSet(size));
+            }
+            Map<String, BitSet> ramValues = new HashMap<>();
+            Map<String, BitSet> storageValues = new HashMap<>();
+
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                ProductDTO product = products.get(ordinal);
+                ordinals.put(product.getId(), ordinal);
+                prices[ordinal] = product.getPrice();
+                priceRanges.get(priceKey(priceBucket(product.getPrice()))).set(ordinal);
+                if (product.getCategoryId() != null) {
+                    categories.computeIfAbsent(product.getCategoryId(), k -> new BitSet(size)).set(ordinal);
+                    categoryNames.put(product.getCategoryId(), product.getCategoryName());
+                }
+                if (product.getBrandId() != null) {
+                    brands.computeIfAbsent(product.getBrandId(), k -> new BitSet(size)).set(ordinal);
+                    brandNames.put(product.getBrandId(), product.getBrandName());
+                }
+                ProductSpecification spec = product.getSpecification();
+                if (spec != null) {
+                    addValue(ramValues, spec.getRam(), ordinal);
+                    addValue(storageValues, spec.getStorage(), ordinal);
+                }
+            }
+
+            ram = sortedBySize(ramValues);
+            storage = sortedBySize(storageValues);
+        }
+
+        BitSet all() {
+            BitSet bits = new BitSet(size);
+            bits.set(0, size);
+            return bits;
+        }
+
+        BitSet ordinalsOf(Collection<Long> productIds) {
+            BitSet bits = new BitSet(size);
+            for (Long id : productIds) {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal != null) {
+                    bits.set(ordinal);
+                }
+            }
+            return bits;
+        }
+
+        BitSet priceBetween(BigDecimal min, BigDecimal max) {
+            if (min == null && max == null) {
+                return null;
+            }
+            BitSet bits = new BitSet(size);
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                BigDecimal price = prices[ordinal];
+                if ((min == null || price.compareTo(min) >= 0) && (max == null || price.compareTo(max) <= 0)) {
+                    bits.set(ordinal);
+                }
+            }
+            return bits;
+        }
+
+        private static void addValue(Map<String, BitSet> facet, String value, int ordinal) {
+            if (value != null && !value.isBlank()) {
+                facet.computeIfAbsent(value.trim(), k -> new BitSet()).set(ordinal);
+            }
+        }
+
+        // "6GB" before "12GB" before "1TB"
+        private static Map<String, BitSet> sortedBySize(Map<String, BitSet> values) {
+            Map<String, BitSet> sorted = new LinkedHashMap<>();
+            values.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey(
+                            Comparator.comparingDouble((String value) -> SpecValues.capacityInGb(value).orElse(Double.MAX_VALUE))
+                                    .thenComparing(Comparator.naturalOrder())))
+                    .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+            return sorted;
+        }
+
+        private static int priceBucket(BigDecimal price) {
+            int bucket = 0;
+            while (bucket < PRICE_BOUNDS.length && price.compareTo(PRICE_BOUNDS[bucket]) >= 0) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        private static String priceKey(int bucket) {
+            String lower = bucket == 0 ? "0" : PRICE_BOUNDS[bucket - 1].toPlainString();
+            String upper = bucket == PRICE_BOUNDS.length ? "" : PRICE_BOUNDS[bucket].toPlainString();
+            return lower + "-" + upper;
+        }
+
+        private static String priceLabel(String key) {
+            String[] bounds = key.split("-", -1);
+            if (bounds[0].equals("0")) {
+                return "Sub " + bounds[1] + " RON";
+            }
+            if (bounds[1].isEmpty()) {
+                return "Peste " + bounds[0] + " RON";
+            }
+            return bounds[0] + " - " + bounds[1] + " RON";
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.dto.ProductFeedFormat;
+import com.backend.smartshop.dto.ProductFeedRow;
+import com.backend.smartshop.repository.ProductFeedRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFeedService {
+
+    private static final String GOOGLE_NAMESPACE = "http://base.google.com/ns/1.0";
+
+    private static final List<ExportWriter.CsvColumn<ProductFeedRow>> CSV_COLUMNS = List.of(
+            new ExportWriter.CsvColumn<>("id", ProductFeedRow::getId),
+            new ExportWriter.CsvColumn<>("name", ProductFeedRow::getName),
+            new ExportWriter.CsvColumn<>("description", ProductFeedRow::getDescription),
+            new ExportWriter.CsvColumn<>("price", ProductFeedRow::getPrice),
+            new ExportWriter.CsvColumn<>("stock", ProductFeedRow::getStock),
+            new ExportWriter.CsvColumn<>("imageUrl", ProductFeedRow::getImageUrl),
+            new ExportWriter.CsvColumn<>("link", ProductFeedRow::getLink),
+            new ExportWriter.CsvColumn<>("categoryName", ProductFeedRow::getCategoryName),
+            new ExportWriter.CsvColumn<>("brandName", ProductFeedRow::getBrandName));
+
+    private final ProductFeedRepository repository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${application.feed.site-url:https://smartshop-xgco.vercel.app}")
+    private String siteUrl;
+
+    public void writeFeed(ProductFeedFormat format, OutputStream out) throws IOException {
+        try (ExportWriter<ProductFeedRow> writer = createWriter(format, out)) {
+            int[] count = {0};
+            repository.streamFeedRows(row -> {
+                completeLinks(row);
+                try {
+                    writer.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            log.info("Streamed {} feed with {} products", format, count[0]);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private ExportWriter<ProductFeedRow> createWriter(ProductFeedFormat format, OutputStream out) throws IOException {
+        return switch (format) {
+            case NDJSON -> ExportWriter.ndjson(objectMapper, out);
+            case CSV -> ExportWriter.csv(out, CSV_COLUMNS);
+            case XML -> new ShoppingXmlFeedWriter(out, siteUrl);
+        };
+    }
+
+    private void completeLinks(ProductFeedRow row) {
+        row.setLink(siteUrl + "/magazin/" + row.getId());
+        if (row.getImageUrl() != null && row.getImageUrl().startsWith("/")) {
+            row.setImageUrl(siteUrl + row.getImageUrl());
+        }
+    }
+
+    // Google Merchant Center product feed (RSS 2.0 with the g: namespace)
+    private static final class ShoppingXmlFeedWriter implements ExportWriter<ProductFeedRow> {
+
+        private final XMLStreamWriter xml;
+
+        ShoppingXmlFeedWriter(OutputStream out, String siteUrl) throws IOException {
+            try {
+                this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+                xml.writeStartDocument("UTF-8", "1.0");
+                xml.writeStartElement("rss");
+                xml.writeAttribute("version", "2.0");
+                xml.writeNamespace("g", GOOGLE_NAMESPACE);
+                xml.writeStartElement("channel");
+                element("title", "SmartShop");
+                element("link", siteUrl);
+                element("description", "Catalog produse SmartShop");
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void write(ProductFeedRow row) throws IOException {
+            try {
+                xml.writeStartElement("item");
+                googleElement("id", String.valueOf(row.getId()));
+                googleElement("title", row.getName());
+                googleElement("description", row.getDescription());
+                googleElement("link", row.getLink());
+                googleElement("image_link", row.getImageUrl());
+                googleElement("availability", row.getStock() != null && row.getStock() > 0 ? "in_stock" : "out_of_stock");
+                googleElement("price", row.getPrice() != null ? row.getPrice().toPlainString() + " RON" : null);
+                googleElement("brand", row.getBrandName());
+                googleElement("product_type", row.getCategoryName());
+                googleElement("condition", "new");
+                xml.writeEndElement();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void element(String name, String value) throws XMLStreamException {
+            xml.writeStartElement(name);
+            xml.writeCharacters(value);
+            xml.writeEndElement();
+        }
+
+        private void googleElement(String name, String value) throws XMLStreamException {
+            if (value == null) {
+                return;
+            }
+            xml.writeStartElement("g", name, GOOGLE_NAMESPACE);
+            xml.writeCharacters(value);
+            xml.writeEndElement();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                xml.writeEndDocument();
+                xml.flush();
+                xml.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
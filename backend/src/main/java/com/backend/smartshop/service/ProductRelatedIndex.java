@@ -0,0 +1,204 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.ProductSpecification;
+import com.backend.smartshop.dto.ProductDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed "similar products". Specification fields become feature vectors scaled per
+ * category, and every product keeps its nearest neighbours from the same category within a
+ * price band. Catalog changes only mark categories dirty, and only when a product's features
+ * (price, specification, brand, category) changed; a background thread recomputes the dirty
+ * categories from the latest snapshot, so catalog writers never pay for it and a read is a single
+ * map lookup. Lists may lag a write by one recompute.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductRelatedIndex {
+
+    public static final int MAX_RELATED = 8;
+
+    // Neighbours cost between half and double the product's price
+    private static final BigDecimal PRICE_BAND = BigDecimal.valueOf(2);
+
+    // log(price), screen size, RAM, storage, battery
+    private static final double[] NUMERIC_WEIGHTS = {2.0, 1.0, 1.0, 1.0, 1.0};
+    private static final double PROCESSOR_WEIGHT = 1.0;
+    private static final double BRAND_WEIGHT = 0.5;
+
+    @Qualifier("relatedProductsExecutor")
+    private final ThreadPoolTaskExecutor recomputer;
+
+    private final Map<Long, List<Long>> neighbours = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtyCategories = ConcurrentHashMap.newKeySet();
+    private volatile CatalogSnapshot latest;
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        CatalogSnapshot previous = event.previous();
+
+        // A product moving between categories changes the neighbourhoods of both
+        Set<Long> categories = new HashSet<>();
+        for (ProductDTO product : event.changedProducts()) {
+            ProductDTO old = previous != null ? previous.getProductsById().get(product.getId()) : null;
+            if (old != null && sameFeatures(old, product)) {
+                continue;
+            }
+            categories.add(product.getCategoryId());
+            if (old != null) {
+                categories.add(old.getCategoryId());
+            }
+        }
+        for (Long id : event.removedProductIds()) {
+            previous.findProduct(id).ifPresent(old -> categories.add(old.getCategoryId()));
+        }
+        categories.remove(null);
+        if (categories.isEmpty()) {
+            return;
+        }
+
+        // Published before the categories, so the recompute that picks them up sees this snapshot
+        latest = event.current();
+        dirtyCategories.addAll(categories);
+        recomputer.execute(this::recomputeDirtyCategories);
+    }
+
+    public List<Long> relatedTo(Long productId) {
+        return neighbours.getOrDefault(productId, List.of());
+    }
+
+    private void recomputeDirtyCategories() {
+        try {
+            List<Long> categories = new ArrayList<>(dirtyCategories);
+            if (categories.isEmpty()) {
+                return;
+            }
+            dirtyCategories.removeAll(categories);
+            CatalogSnapshot snapshot = latest;
+
+            for (Long categoryId : categories) {
+                List<Features> features = features(snapshot.getProductsByCategory(categoryId));
+                for (Features product : features) {
+                    neighbours.put(product.id(), nearest(product, features));
+                }
+            }
+            // Deleted products, and products left without a category, have no neighbours
+            neighbours.keySet().removeIf(id -> snapshot.findProduct(id)
+                    .map(product -> product.getCategoryId() == null)
+                    .orElse(true));
+            log.debug("Related products recomputed for {} categories of catalog v{}", categories.size(), snapshot.getVersion());
+        } catch (RuntimeException e) {
+            log.error("Related products recompute failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Everything Features.of reads; a change to anything else (name, stock, image) keeps the neighbours
+    private static boolean sameFeatures(ProductDTO a, ProductDTO b) {
+        ProductSpecification specA = a.getSpecification() != null ? a.getSpecification() : new ProductSpecification();
+        ProductSpecification specB = b.getSpecification() != null ? b.getSpecification() : new ProductSpecification();
+        return a.getPrice().compareTo(b.getPrice()) == 0
+                && Objects.equals(a.getCategoryId(), b.getCategoryId())
+                && Objects.equals(a.getBrandId(), b.getBrandId())
+                && Objects.equals(specA.getScreenSize(), specB.getScreenSize())
+                && Objects.equals(specA.getRam(), specB.getRam())
+                && Objects.equals(specA.getStorage(), specB.getStorage())
+                && Objects.equals(specA.getBatteryCapacity(), specB.getBatteryCapacity())
+                && Objects.equals(specA.getProcessor(), specB.getProcessor());
+    }
+
+    private static List<Long> nearest(Features target, List<Features> candidates) {
+        BigDecimal lowest = target.price().divide(PRICE_BAND, 2, RoundingMode.HALF_UP);
+        BigDecimal highest = target.price().multiply(PRICE_BAND);
+        return candidates.stream()
+                .filter(other -> !other.id().equals(target.id()))
+                .filter(other -> other.price().compareTo(lowest) >= 0 && other.price().compareTo(highest) <= 0)
+                .sorted(Comparator.comparingDouble((Features other) -> distance(target, other))
+                        .thenComparing(Features::id))
+                .limit(MAX_RELATED)
+                .map(Features::id)
+                .toList();
+    }
+
+    // Weighted Euclidean distance over the features both products have
+    private static double distance(Features a, Features b) {
+        double sum = 0;
+        double weights = 0;
+        for (int i = 0; i < NUMERIC_WEIGHTS.length; i++) {
+            if (!Double.isNaN(a.numeric()[i]) && !Double.isNaN(b.numeric()[i])) {
+                double delta = a.numeric()[i] - b.numeric()[i];
+                sum += NUMERIC_WEIGHTS[i] * delta * delta;
+                weights += NUMERIC_WEIGHTS[i];
+            }
+        }
+        if (a.processorFamily() != null && b.processorFamily() != null) {
+            sum += a.processorFamily().equals(b.processorFamily()) ? 0 : PROCESSOR_WEIGHT;
+            weights += PROCESSOR_WEIGHT;
+        }
+        sum += Objects.equals(a.brandId(), b.brandId()) ? 0 : BRAND_WEIGHT;
+        weights += BRAND_WEIGHT;
+        return Math.sqrt(sum / weights);
+    }
+
+    private static List<Features> features(List<ProductDTO> products) {
+        List<Features> features = products.stream().map(Features::of).toList();
+
+        // Min-max scale each numeric feature within the category
+        for (int i = 0; i < NUMERIC_WEIGHTS.length; i++) {
+            int feature = i;
+            double min = features.stream().mapToDouble(f -> f.numeric()[feature]).filter(v -> !Double.isNaN(v)).min().orElse(0);
+            double max = features.stream().mapToDouble(f -> f.numeric()[feature]).filter(v -> !Double.isNaN(v)).max().orElse(0);
+            for (Features product : features) {
+                double value = product.numeric()[feature];
+                if (!Double.isNaN(value)) {
+                    product.numeric()[feature] = max > min ? (value - min) / (max - min) : 0.5;
+                }
+            }
+        }
+        return features;
+    }
+
+    private record Features(Long id, BigDecimal price, double[] numeric, String processorFamily, Long brandId) {
+
+        static Features of(ProductDTO product) {
+            ProductSpecification spec = product.getSpecification() != null
+                    ? product.getSpecification() : new ProductSpecification();
+            double[] numeric = {
+                    Math.log(Math.max(product.getPrice().doubleValue(), 1)),
+                    valueOf(SpecValues.number(spec.getScreenSize())),
+                    valueOf(SpecValues.capacityInGb(spec.getRam())),
+                    valueOf(SpecValues.capacityInGb(spec.getStorage())),
+                    valueOf(SpecValues.number(spec.getBatteryCapacity()))
+            };
+            return new Features(product.getId(), product.getPrice(), numeric, processorFamily(spec.getProcessor()), product.getBrandId());
+        }
+
+        private static double valueOf(OptionalDouble value) {
+            return value.isPresent() ? value.getAsDouble() : Double.NaN;
+        }
+
+        // "Snapdragon 8 Gen 3" -> "snapdragon", "A17 Pro" -> "a17"
+        private static String processorFamily(String processor) {
+            List<String> tokens = processor != null ? SearchText.tokenize(processor) : List.of();
+            return tokens.isEmpty() ? null : tokens.get(0);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.ProductSpecification;
+import com.backend.smartshop.dto.ProductDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index over the catalog snapshot. Terms are kept in a sorted dictionary so a query
+ * token also matches every indexed term it is a prefix of; exact matches score higher.
+ */
+@Service
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 5f;
+    private static final float BRAND_WEIGHT = 4f;
+    private static final float CATEGORY_WEIGHT = 3f;
+    private static final float SPECIFICATION_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> termsByProduct = new HashMap<>();
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.removedProductIds().forEach(this::removeProduct);
+            List<ProductDTO> changed = event.changedProducts();
+            for (ProductDTO product : changed) {
+                removeProduct(product.getId());
+                addProduct(product);
+            }
+            log.debug("Search index updated for catalog v{}: {} products reindexed, {} terms",
+                    event.current().getVersion(), changed.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of products matching every token of the query, best match first.
+     */
+    public List<Long> search(String query) {
+        List<String> tokens = SearchText.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = null;
+            for (String token : tokens) {
+                Map<Long, Float> tokenScores = match(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Float>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Float> match(String token) {
+        Map<Long, Float> result = new HashMap<>();
+        NavigableMap<String, Map<Long, Float>> candidates =
+                postings.subMap(token, true, token + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Map<Long, Float>> entry : candidates.entrySet()) {
+            float factor = entry.getKey().equals(token) ? 1f : PREFIX_MATCH_FACTOR;
+            entry.getValue().forEach((id, weight) -> result.merge(id, weight * factor, Math::max));
+        }
+        return result;
+    }
+
+    private void addProduct(ProductDTO product) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getBrandName(), BRAND_WEIGHT);
+        addField(weights, product.getCategoryName(), CATEGORY_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        ProductSpecification spec = product.getSpecification();
+        if (spec != null) {
+            Stream.of(spec.getScreenSize(), spec.getScreenType(), spec.getResolution(), spec.getProcessor(),
+                            spec.getRam(), spec.getStorage(), spec.getBatteryCapacity(), spec.getCameraMain(),
+                            spec.getCameraFront(), spec.getOsVersion(), spec.getConnectivity(), spec.getColor())
+                    .forEach(value -> addField(weights, value, SPECIFICATION_WEIGHT));
+        }
+
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, k -> new HashMap<>()).put(product.getId(), weight));
+        termsByProduct.put(product.getId(), weights.keySet());
+    }
+
+    private void addField(Map<String, Float> weights, String text, float weight) {
+        for (String token : SearchText.tokenize(text)) {
+            weights.merge(token, weight, Float::sum);
+        }
+    }
+
+    private void removeProduct(Long id) {
+        Set<String> terms = termsByProduct.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Float> products = postings.get(term);
+            products.remove(id);
+            if (products.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
@@ -1,51 +1,195 @@
 package com.backend.smartshop.service;
 
+import com.backend.smartshop.domain.Brand;
+import com.backend.smartshop.domain.Category;
 import com.backend.smartshop.domain.Product;
 import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.ProductFacets;
+import com.backend.smartshop.dto.ProductPage;
+import com.backend.smartshop.dto.ProductQuery;
+import com.backend.smartshop.dto.ProductSort;
+import com.backend.smartshop.dto.ProductSuggestion;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
 import com.backend.smartshop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository repository;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final CatalogSnapshotService catalog;
+    private final ProductSearchIndex searchIndex;
+    private final ProductFacetIndex facetIndex;
+    private final ProductSuggestIndex suggestIndex;
+    private final ProductDetailCache detailCache;
+    private final ProductRelatedIndex relatedIndex;
 
     public List<ProductDTO> getAllProducts() {
-        return repository.findAll().stream()
-                .map(ProductDTO::fromEntity)
-                .collect(Collectors.toList());
+        return catalog.current().getProducts();
     }
 
     public Product createProduct(Product product) {
-        return repository.save(product);
+        product.setCategory(resolveCategory(product.getCategory()));
+        product.setBrand(resolveBrand(product.getBrand()));
+        Product saved = repository.save(product);
+        catalog.productSaved(saved);
+        return saved;
     }
 
     public ProductDTO getProductById(Long id) {
-        Product product = repository.findById(id)
+        return catalog.current().findProduct(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        return ProductDTO.fromEntity(product);
+    }
+
+    public ProductDetailCache.CachedJson getProductJson(Long id) {
+        return detailCache.get(getProductById(id));
+    }
+
+    public List<ProductDTO> getRelatedProducts(Long id, int limit) {
+        CatalogSnapshot snapshot = catalog.current();
+        getProductById(id);
+        return relatedIndex.relatedTo(id).stream()
+                .map(snapshot.getProductsById()::get)
+                .filter(Objects::nonNull)
+                .limit(Math.min(Math.max(limit, 1), ProductRelatedIndex.MAX_RELATED))
+                .toList();
     }
 
     public List<ProductDTO> getProductsByCategory(Long categoryId) {
-        return repository.findByCategoryId(categoryId).stream()
-                .map(ProductDTO::fromEntity)
-                .collect(Collectors.toList());
+        return catalog.current().getProductsByCategory(categoryId);
     }
 
     public List<ProductDTO> getProductsByBrand(Long brandId) {
-        return repository.findByBrandId(brandId).stream()
-                .map(ProductDTO::fromEntity)
-                .collect(Collectors.toList());
+        return catalog.current().getProductsByBrand(brandId);
+    }
+
+    public ProductPage getProductPage(ProductQuery query) {
+        ProductSort sort = query.getSort() != null ? query.getSort() : ProductSort.NEWEST;
+        int size = query.getSize() != null ? Math.min(Math.max(query.getSize(), 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        CatalogSnapshot snapshot = catalog.current();
+        Set<Long> searchResultIds = searchResultIds(query.getQ());
+        List<ProductDTO> ordering = candidates(snapshot, sort, query, searchResultIds);
+
+        int start = 0;
+        if (query.getCursor() != null && !query.getCursor().isBlank()) {
+            int position = Collections.binarySearch(ordering, ProductCursor.decode(sort, query.getCursor()), sort.comparator());
+            start = position >= 0 ? position + 1 : -(position + 1);
+        }
+
+        // Collect one extra match to know whether another page exists
+        List<ProductDTO> items = new ArrayList<>(size + 1);
+        for (int i = start; i < ordering.size() && items.size() <= size; i++) {
+            ProductDTO product = ordering.get(i);
+            if ((searchResultIds == null || searchResultIds.contains(product.getId())) && matches(product, query)) {
+                items.add(product);
+            }
+        }
+
+        String nextCursor = null;
+        if (items.size() > size) {
+            items.remove(size);
+            nextCursor = ProductCursor.encode(sort, items.get(size - 1));
+        }
+        return ProductPage.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // The shortest ordering that holds every match: the category's or brand's own ordering, or the
+    // search results sorted, so a page scans only products that already pass the narrowest filter
+    private static List<ProductDTO> candidates(CatalogSnapshot snapshot, ProductSort sort, ProductQuery query,
+                                               Set<Long> searchResultIds) {
+        List<ProductDTO> candidates = snapshot.getOrdering(sort);
+        if (query.getCategoryId() != null) {
+            candidates = shorter(candidates, snapshot.getCategoryOrdering(sort, query.getCategoryId()));
+        }
+        if (query.getBrandId() != null) {
+            candidates = shorter(candidates, snapshot.getBrandOrdering(sort, query.getBrandId()));
+        }
+        if (searchResultIds != null && searchResultIds.size() < candidates.size()) {
+            candidates = searchResultIds.stream()
+                    .map(snapshot.getProductsById()::get)
+                    .filter(Objects::nonNull)
+                    .sorted(sort.comparator())
+                    .toList();
+        }
+        return candidates;
+    }
+
+    private static List<ProductDTO> shorter(List<ProductDTO> a, List<ProductDTO> b) {
+        return b.size() < a.size() ? b : a;
+    }
+
+    // The facet index is built from catalog change events, starting with the one warmUp publishes at startup
+    public ProductFacets getFacets(ProductQuery query) {
+        return facetIndex.count(query, searchResultIds(query.getQ()));
+    }
+
+    // Like the facet index, the suggest trie is kept current by catalog change events
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    private Set<Long> searchResultIds(String query) {
+        if (SearchText.tokenize(query).isEmpty()) {
+            return null;
+        }
+        return new HashSet<>(searchIndex.search(query));
+    }
+
+    private boolean matches(ProductDTO product, ProductQuery query) {
+        if (query.getCategoryId() != null && !query.getCategoryId().equals(product.getCategoryId())) {
+            return false;
+        }
+        if (query.getBrandId() != null && !query.getBrandId().equals(product.getBrandId())) {
+            return false;
+        }
+        if (query.getMinPrice() != null && product.getPrice().compareTo(query.getMinPrice()) < 0) {
+            return false;
+        }
+        if (query.getMaxPrice() != null && product.getPrice().compareTo(query.getMaxPrice()) > 0) {
+            return false;
+        }
+        if (query.getRam() != null && (product.getSpecification() == null
+                || !query.getRam().equals(trim(product.getSpecification().getRam())))) {
+            return false;
+        }
+        if (query.getStorage() != null && (product.getSpecification() == null
+                || !query.getStorage().equals(trim(product.getSpecification().getStorage())))) {
+            return false;
+        }
+        return !Boolean.TRUE.equals(query.getInStock()) || (product.getStock() != null && product.getStock() > 0);
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : null;
     }
 
     public List<ProductDTO> searchProducts(String query) {
-        return repository.searchProducts(query).stream()
-                .map(ProductDTO::fromEntity)
+        CatalogSnapshot snapshot = catalog.current();
+        if (SearchText.tokenize(query).isEmpty()) {
+            return snapshot.getProducts();
+        }
+        return searchIndex.search(query).stream()
+                .map(snapshot.getProductsById()::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
@@ -58,13 +202,34 @@ public class ProductService {
         product.setPrice(productDetails.getPrice());
         product.setStock(productDetails.getStock());
         product.setImageUrl(productDetails.getImageUrl());
-        product.setCategory(productDetails.getCategory());
-        product.setBrand(productDetails.getBrand());
+        product.setCategory(resolveCategory(productDetails.getCategory()));
+        product.setBrand(resolveBrand(productDetails.getBrand()));
 
-        return repository.save(product);
+        Product saved = repository.save(product);
+        catalog.productSaved(saved);
+        return saved;
     }
 
     public void deleteProduct(Long id) {
         repository.deleteById(id);
+        catalog.productDeleted(id);
+    }
+
+    // Request bodies reference category and brand by id only; load them so the saved entity
+    // (and the snapshot DTO built from it) carries their names
+    private Category resolveCategory(Category category) {
+        if (category == null || category.getId() == null) {
+            return null;
+        }
+        return categoryRepository.findById(category.getId())
+                .orElseThrow(() -> new RuntimeException("Category not found"));
+    }
+
+    private Brand resolveBrand(Brand brand) {
+        if (brand == null || brand.getId() == null) {
+            return null;
+        }
+        return brandRepository.findById(brand.getId())
+                .orElseThrow(() -> new RuntimeException("Brand not found"));
     }
 }
@@ -0,0 +1,197 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.SalesDimension;
+import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.ProductSuggestion;
+import com.backend.smartshop.repository.SalesRollupRepository;
+import com.backend.smartshop.repository.SalesRollupRepository.UnitsSold;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Typeahead over product, brand and category names, as one sorted array of terms. Every name is
+ * indexed once per word so "galaxy" completes "Samsung Galaxy S24"; a lookup binary-searches the
+ * range of terms starting with the prefix and keeps the best entries of that range. Entries rank
+ * by units sold over the last {@code application.suggest.popularity-days} days, read from the
+ * sales rollups. The index is immutable and rebuilt whole on catalog changes, so lookups take no
+ * lock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::score).reversed()
+            .thenComparing(Entry::text, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Entry::key);
+
+    private final SalesRollupRepository rollupRepository;
+
+    @Value("${application.suggest.popularity-days:30}")
+    private int popularityDays;
+
+    @Value("${application.suggest.popularity-refresh-ms:60000}")
+    private long popularityRefreshMs;
+
+    private volatile Index index = new Index(new String[0], new Entry[0]);
+
+    // Written only while holding this index's lock
+    private CatalogSnapshot snapshot;
+    private Map<SalesDimension, Map<Long, Long>> popularity;
+    private long popularityReadAt;
+
+    // Catalog writes and reloads; the ranking is reused, so a reload costs no query
+    @EventListener
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        snapshot = event.current();
+        if (popularity == null) {
+            refreshPopularity();
+        }
+        rebuild();
+    }
+
+    // Sales change stock, so stock refreshes are when the ranking may have moved
+    @EventListener
+    public synchronized void onStockChanged(CatalogStockChangedEvent event) {
+        snapshot = event.current();
+        if (System.currentTimeMillis() - popularityReadAt >= popularityRefreshMs) {
+            refreshPopularity();
+            rebuild();
+        }
+    }
+
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = SearchText.fold(prefix).trim();
+        int wanted = Math.min(limit, MAX_SUGGESTIONS);
+        if (key.isEmpty() || wanted <= 0) {
+            return List.of();
+        }
+
+        Index current = index;
+        // The worst kept entry on top, so it is the one replaced by a better match
+        PriorityQueue<Entry> best = new PriorityQueue<>(wanted + 1, RANKING.reversed());
+        Set<Entry> seen = new HashSet<>();
+        for (int i = lowerBound(current.terms(), key); i < current.terms().length && current.terms()[i].startsWith(key); i++) {
+            Entry entry = current.entries()[i];
+            if (!seen.add(entry)) {
+                continue;
+            }
+            best.add(entry);
+            if (best.size() > wanted) {
+                best.poll();
+            }
+        }
+        return best.stream()
+                .sorted(RANKING)
+                .map(entry -> ProductSuggestion.builder()
+                        .text(entry.text())
+                        .type(entry.type())
+                        .id(entry.id())
+                        .build())
+                .toList();
+    }
+
+    private void refreshPopularity() {
+        Map<SalesDimension, Map<Long, Long>> units = new EnumMap<>(SalesDimension.class);
+        try {
+            for (UnitsSold row : rollupRepository.findUnitsSince(LocalDate.now().minusDays(popularityDays - 1))) {
+                units.computeIfAbsent(row.dimension(), dimension -> new HashMap<>()).put(row.dimensionId(), row.units());
+            }
+        } catch (RuntimeException e) {
+            // Suggestions keep working with the last ranking; the next stock refresh tries again
+            log.warn("Could not read suggestion popularity: {}", e.getMessage());
+            if (popularity != null) {
+                return;
+            }
+        }
+        popularity = units;
+        popularityReadAt = System.currentTimeMillis();
+    }
+
+    private void rebuild() {
+        List<Entry> entries = new ArrayList<>();
+        Set<Long> brands = new HashSet<>();
+        Set<Long> categories = new HashSet<>();
+        for (ProductDTO product : snapshot.getProducts()) {
+            add(entries, ProductSuggestion.Type.PRODUCT, SalesDimension.PRODUCT, product.getId(), product.getName());
+            if (product.getBrandId() != null && brands.add(product.getBrandId())) {
+                add(entries, ProductSuggestion.Type.BRAND, SalesDimension.BRAND, product.getBrandId(), product.getBrandName());
+            }
+            if (product.getCategoryId() != null && categories.add(product.getCategoryId())) {
+                add(entries, ProductSuggestion.Type.CATEGORY, SalesDimension.CATEGORY, product.getCategoryId(), product.getCategoryName());
+            }
+        }
+
+        List<Term> terms = new ArrayList<>();
+        for (Entry entry : entries) {
+            for (String term : terms(entry.text())) {
+                terms.add(new Term(term, entry));
+            }
+        }
+        terms.sort(Comparator.comparing(Term::text));
+        index = new Index(terms.stream().map(Term::text).toArray(String[]::new),
+                terms.stream().map(Term::entry).toArray(Entry[]::new));
+        log.debug("Suggest index rebuilt for catalog v{}: {} entries, {} terms", snapshot.getVersion(), entries.size(), terms.size());
+    }
+
+    private void add(List<Entry> entries, ProductSuggestion.Type type, SalesDimension dimension, Long id, String text) {
+        if (text != null && !text.isBlank()) {
+            entries.add(new Entry(type, id, text, popularity.getOrDefault(dimension, Map.of()).getOrDefault(id, 0L)));
+        }
+    }
+
+    // First index whose term is not before the prefix; every term starting with it follows
+    private static int lowerBound(String[] terms, String prefix) {
+        int position = Arrays.binarySearch(terms, prefix);
+        if (position < 0) {
+            return -position - 1;
+        }
+        while (position > 0 && terms[position - 1].equals(prefix)) {
+            position--;
+        }
+        return position;
+    }
+
+    // "Samsung Galaxy S24" -> "samsung galaxy s24", "galaxy s24", "s24"
+    private static Set<String> terms(String text) {
+        String folded = SearchText.fold(text).trim();
+        Set<String> terms = new LinkedHashSet<>();
+        for (int i = 0; i < folded.length(); i++) {
+            if (Character.isLetterOrDigit(folded.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(folded.charAt(i - 1)))) {
+                terms.add(folded.substring(i));
+            }
+        }
+        return terms;
+    }
+
+    private record Entry(ProductSuggestion.Type type, Long id, String text, long score) {
+        String key() {
+            return type + ":" + id;
+        }
+    }
+
+    private record Term(String text, Entry entry) {
+    }
+
+    // entries[i] is the entry term i belongs to
+    private record Index(String[] terms, Entry[] entries) {
+    }
+}
@@ -0,0 +1,327 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.Order;
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.domain.OrderStatusRollup;
+import com.backend.smartshop.domain.SalesDimension;
+import com.backend.smartshop.domain.SalesRollup;
+import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.SalesStats;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.OrderRepository;
+import com.backend.smartshop.repository.OrderRepository.OrderSalesRow;
+import com.backend.smartshop.repository.SalesRollupRepository;
+import com.backend.smartshop.repository.SalesRollupRepository.SalesDelta;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Sales statistics maintained incrementally. Order creation and status changes add their
+ * deltas to per-day rollup rows in the same transaction as the order, each transaction to one
+ * of {@code application.stats.rollup-slots} rows per key chosen at random, so concurrent
+ * checkouts seldom wait on each other's row locks. Reading statistics touches a number of rows
+ * proportional to the days, categories, brands and slots in the range, never to the number of
+ * orders, and sees the orders of every node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesStatsService {
+
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final long NONE = 0L;
+
+    private final SalesRollupRepository repository;
+    private final CatalogSnapshotService catalog;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final OrderRepository orderRepository;
+
+    @Value("${application.stats.rollup-slots:8}")
+    private int slots;
+
+    // Rollup rows known to exist, per day, so checkouts only try to create new ones
+    private final Set<String> preparedRows = ConcurrentHashMap.newKeySet();
+    private volatile LocalDate preparedDay;
+
+    private record SalesKey(SalesDimension dimension, long dimensionId) {
+    }
+
+    private static final Comparator<SalesKey> KEY_ORDER =
+            Comparator.comparing(SalesKey::dimension).thenComparingLong(SalesKey::dimensionId);
+
+    /**
+     * Creates today's rollup rows for the given products before the checkout transaction
+     * starts, so the transaction itself only updates rows. Uses the catalog snapshot, so it
+     * costs no query once the rows of the day exist.
+     */
+    public void prepare(Collection<Long> productIds) {
+        LocalDate day = LocalDate.now();
+        if (!day.equals(preparedDay)) {
+            synchronized (this) {
+                if (!day.equals(preparedDay)) {
+                    preparedRows.clear();
+                    for (OrderStatus status : OrderStatus.values()) {
+                        repository.createStatusIfMissing(day, status, slots);
+                    }
+                    preparedDay = day;
+                }
+            }
+        }
+
+        CatalogSnapshot snapshot = catalog.current();
+        for (Long productId : productIds) {
+            snapshot.findProduct(productId).ifPresent(product -> {
+                prepareRow(day, SalesDimension.PRODUCT, product.getId());
+                prepareRow(day, SalesDimension.CATEGORY, idOrNone(product.getCategoryId()));
+                prepareRow(day, SalesDimension.BRAND, idOrNone(product.getBrandId()));
+            });
+        }
+    }
+
+    private void prepareRow(LocalDate day, SalesDimension dimension, long dimensionId) {
+        if (preparedRows.add(dimension + ":" + dimensionId)) {
+            repository.createIfMissing(day, dimension, dimensionId, slots);
+        }
+    }
+
+    // In the order's transaction
+    public void orderCreated(Order order) {
+        apply(order.getCreatedAt().toLocalDate(), salesOf(order, 1), Map.of(order.getStatus(), 1L));
+    }
+
+    // In the transaction that changes the status; a cancelled order stops counting as a sale
+    public void statusChanged(Order order, OrderStatus from, OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        Map<OrderStatus, Long> statuses = new EnumMap<>(OrderStatus.class);
+        statuses.put(from, -1L);
+        statuses.put(to, 1L);
+        Map<SalesKey, long[]> sales = Map.of();
+        if (to == OrderStatus.CANCELLED) {
+            sales = salesOf(order, -1);
+        } else if (from == OrderStatus.CANCELLED) {
+            sales = salesOf(order, 1);
+        }
+        apply(order.getCreatedAt().toLocalDate(), sales, statuses);
+    }
+
+    /**
+     * statusChanged() for many orders at once, with one rollup update per day instead of per order.
+     * The orders' lines are summed by one aggregate query instead of being loaded order by order,
+     * as callers hold locks on the orders meanwhile.
+     */
+    public void statusesChanged(List<Order> orders, OrderStatus from, OrderStatus to) {
+        if (from == to || orders.isEmpty()) {
+            return;
+        }
+        Map<Long, List<SaleLine>> linesByOrder = new HashMap<>();
+        if (to == OrderStatus.CANCELLED || from == OrderStatus.CANCELLED) {
+            for (OrderSalesRow row : orderRepository.findSalesByOrderIdIn(orders.stream().map(Order::getId).toList())) {
+                linesByOrder.computeIfAbsent(row.getOrderId(), id -> new ArrayList<>())
+                        .add(new SaleLine(row.getProductId(), row.getCategoryId(), row.getBrandId(), row.getUnits(), row.getRevenue()));
+            }
+        }
+        int sign = to == OrderStatus.CANCELLED ? -1 : 1;
+
+        Map<LocalDate, List<Order>> byDay = orders.stream()
+                .collect(Collectors.groupingBy(order -> order.getCreatedAt().toLocalDate(), TreeMap::new, Collectors.toList()));
+        byDay.forEach((day, dayOrders) -> {
+            Map<OrderStatus, Long> statuses = new EnumMap<>(OrderStatus.class);
+            statuses.put(from, -(long) dayOrders.size());
+            statuses.put(to, (long) dayOrders.size());
+            Map<SalesKey, long[]> sales = new HashMap<>();
+            for (Order order : dayOrders) {
+                salesOf(linesByOrder.getOrDefault(order.getId(), List.of()), sign).forEach((key, totals) ->
+                        sales.merge(key, totals, (a, b) -> new long[]{a[0] + b[0], a[1] + b[1], a[2] + b[2]}));
+            }
+            apply(day, sales, statuses);
+        });
+    }
+
+    public SalesStats getStats(LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Intervalul statisticilor este invalid: from este dupa to");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Intervalul statisticilor poate avea cel mult " + MAX_RANGE_DAYS + " zile");
+        }
+        return summarize(start, end, repository.findBetween(start, end), repository.findStatusesBetween(start, end));
+    }
+
+    public SalesStats getToday() {
+        LocalDate day = LocalDate.now();
+        return getStats(day, day);
+    }
+
+    private void apply(LocalDate day, Map<SalesKey, long[]> sales, Map<OrderStatus, Long> statuses) {
+        // Fixed order: sales rows by key, then status rows by ordinal
+        List<SalesDelta> deltas = sales.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(KEY_ORDER))
+                .map(entry -> new SalesDelta(entry.getKey().dimension(), entry.getKey().dimensionId(),
+                        entry.getValue()[0], entry.getValue()[1], entry.getValue()[2]))
+                .toList();
+        // One slot for the whole transaction, so its rows are still locked in key order
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        if (!deltas.isEmpty()) {
+            // Rows missing despite prepare(), e.g. a category changed in between or another day's order
+            repository.add(day, slot, deltas).forEach(delta -> repository.insert(day, slot, delta));
+        }
+        new TreeMap<>(statuses).forEach((status, orders) -> repository.addStatus(day, slot, status, orders));
+    }
+
+    private static Map<SalesKey, long[]> salesOf(Order order, int sign) {
+        return salesOf(order.getItems().stream()
+                .map(item -> new SaleLine(
+                        item.getProduct().getId(),
+                        item.getProduct().getCategory() != null ? item.getProduct().getCategory().getId() : null,
+                        item.getProduct().getBrand() != null ? item.getProduct().getBrand().getId() : null,
+                        item.getQuantity(),
+                        item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
+                .toList(), sign);
+    }
+
+    // Per product, category and brand of one order's lines: {orders, units, revenue in bani}, all multiplied by sign
+    private static Map<SalesKey, long[]> salesOf(List<SaleLine> lines, int sign) {
+        Map<SalesKey, long[]> sales = new HashMap<>();
+        for (SaleLine line : lines) {
+            long revenue = line.revenue().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            for (SalesKey key : List.of(new SalesKey(SalesDimension.PRODUCT, line.productId()),
+                    new SalesKey(SalesDimension.CATEGORY, idOrNone(line.categoryId())),
+                    new SalesKey(SalesDimension.BRAND, idOrNone(line.brandId())))) {
+                long[] totals = sales.computeIfAbsent(key, k -> new long[]{sign, 0, 0});
+                totals[1] += sign * line.units();
+                totals[2] += sign * revenue;
+            }
+        }
+        return sales;
+    }
+
+    private record SaleLine(long productId, Long categoryId, Long brandId, long units, BigDecimal revenue) {
+    }
+
+    private SalesStats summarize(LocalDate from, LocalDate to, List<SalesRollup> sales, List<OrderStatusRollup> statuses) {
+        Map<OrderStatus, Long> statusTotals = new EnumMap<>(OrderStatus.class);
+        Map<LocalDate, long[]> daily = new TreeMap<>();
+        for (OrderStatus status : OrderStatus.values()) {
+            statusTotals.put(status, 0L);
+        }
+        for (OrderStatusRollup row : statuses) {
+            statusTotals.merge(row.getStatus(), row.getOrders(), Long::sum);
+            // Live orders of the day: everything created that day except what was cancelled
+            long live = row.getStatus() == OrderStatus.CANCELLED ? 0 : row.getOrders();
+            daily.computeIfAbsent(row.getDay(), day -> new long[3])[0] += live;
+        }
+
+        Map<Long, long[]> categories = new TreeMap<>();
+        Map<Long, long[]> brands = new TreeMap<>();
+        for (SalesRollup row : sales) {
+            boolean category = row.getDimension() == SalesDimension.CATEGORY;
+            long[] group = (category ? categories : brands).computeIfAbsent(row.getDimensionId(), id -> new long[3]);
+            group[0] += row.getOrders();
+            group[1] += row.getUnits();
+            group[2] += row.getRevenueMinor();
+            // Every line is in exactly one category, so categories sum up to the day's totals
+            if (category) {
+                long[] day = daily.computeIfAbsent(row.getDay(), d -> new long[3]);
+                day[1] += row.getUnits();
+                day[2] += row.getRevenueMinor();
+            }
+        }
+
+        long[] total = new long[3];
+        daily.values().forEach(day -> {
+            total[0] += day[0];
+            total[1] += day[1];
+            total[2] += day[2];
+        });
+        return SalesStats.builder()
+                .from(from)
+                .to(to)
+                .orders(total[0])
+                .units(total[1])
+                .revenue(PricingEngine.toAmount(total[2]))
+                .days(daily.entrySet().stream()
+                        .map(entry -> SalesStats.DailySales.builder()
+                                .day(entry.getKey())
+                                .orders(entry.getValue()[0])
+                                .units(entry.getValue()[1])
+                                .revenue(PricingEngine.toAmount(entry.getValue()[2]))
+                                .build())
+                        .toList())
+                .categories(groups(categories, categoryNames(categories.keySet()), "Fără categorie"))
+                .brands(groups(brands, brandNames(brands.keySet()), "Fără brand"))
+                .statuses(statusTotals)
+                .build();
+    }
+
+    private static List<SalesStats.GroupSales> groups(Map<Long, long[]> totals, Map<Long, String> names, String noneLabel) {
+        return totals.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] != 0 || entry.getValue()[1] != 0)
+                .map(entry -> SalesStats.GroupSales.builder()
+                        .id(entry.getKey() == NONE ? null : entry.getKey())
+                        .name(entry.getKey() == NONE ? noneLabel : names.get(entry.getKey()))
+                        .orders(entry.getValue()[0])
+                        .units(entry.getValue()[1])
+                        .revenue(PricingEngine.toAmount(entry.getValue()[2]))
+                        .build())
+                .sorted(Comparator.comparing(SalesStats.GroupSales::getRevenue).reversed())
+                .toList();
+    }
+
+    // Names come from the catalog snapshot; only groups without products left are looked up
+    private Map<Long, String> categoryNames(Collection<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        for (ProductDTO product : catalog.current().getProducts()) {
+            if (product.getCategoryId() != null) {
+                names.putIfAbsent(product.getCategoryId(), product.getCategoryName());
+            }
+        }
+        List<Long> missing = ids.stream().filter(id -> id != NONE && !names.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            categoryRepository.findAllById(missing).forEach(category -> names.put(category.getId(), category.getName()));
+        }
+        return names;
+    }
+
+    private Map<Long, String> brandNames(Collection<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        for (ProductDTO product : catalog.current().getProducts()) {
+            if (product.getBrandId() != null) {
+                names.putIfAbsent(product.getBrandId(), product.getBrandName());
+            }
+        }
+        List<Long> missing = ids.stream().filter(id -> id != NONE && !names.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            brandRepository.findAllById(missing).forEach(brand -> names.put(brand.getId(), brand.getName()));
+        }
+        return names;
+    }
+
+    private static long idOrNone(Long id) {
+        return id != null ? id : NONE;
+    }
+}
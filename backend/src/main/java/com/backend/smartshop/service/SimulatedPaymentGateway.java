@@ -0,0 +1,287 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.exception.PaymentGatewayException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.Stripe;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for Stripe, for load tests of the whole checkout and payment flow.
+ * Calls block for a sampled latency (uniform between a min and a max, with an optional slow
+ * tail) and fail at a configured rate. Each intent with an order is settled after a delay, as
+ * if the customer had paid or been declined, and a Stripe-format webhook signed with the real
+ * webhook secret is posted to the application, so settlement takes the production path.
+ */
+@Service
+@ConditionalOnProperty(name = "application.payments.gateway", havingValue = "simulator")
+@RequiredArgsConstructor
+@Slf4j
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler taskScheduler;
+
+    // Settles intents and posts their webhooks, so the scheduler's threads never block on HTTP
+    @Qualifier("paymentSimulatorExecutor")
+    private final ThreadPoolTaskExecutor settler;
+
+    @Value("${application.payments.simulator.latency-min-ms:50}")
+    private long latencyMinMs;
+
+    @Value("${application.payments.simulator.latency-max-ms:150}")
+    private long latencyMaxMs;
+
+    // Share of calls that take tail-latency-ms instead, to model a provider's slow tail
+    @Value("${application.payments.simulator.tail-rate:0.01}")
+    private double tailRate;
+
+    @Value("${application.payments.simulator.tail-latency-ms:2000}")
+    private long tailLatencyMs;
+
+    // Share of calls that fail as if the provider returned an error
+    @Value("${application.payments.simulator.error-rate:0}")
+    private double errorRate;
+
+    // Share of settled intents that are declined instead of paid
+    @Value("${application.payments.simulator.decline-rate:0.05}")
+    private double declineRate;
+
+    // Time the simulated customer takes to pay; negative disables settlement
+    @Value("${application.payments.simulator.settle-delay-ms:1000}")
+    private long settleDelayMs;
+
+    // Share of webhooks delivered twice, as Stripe may redeliver
+    @Value("${application.payments.simulator.duplicate-rate:0.01}")
+    private double duplicateRate;
+
+    // Empty posts to this application's own webhook endpoint on the port it listens on
+    @Value("${application.payments.simulator.webhook-url:}")
+    private volatile String webhookUrl;
+
+    // Intents can be retrieved for this long after they are created
+    @Value("${application.payments.simulator.retention-ms:3600000}")
+    private long retentionMs;
+
+    @Value("${application.stripe.webhook-secret:}")
+    private String webhookSecret;
+
+    private final Map<String, SimulatedIntent> intents = new ConcurrentHashMap<>();
+    private final NavigableMap<String, SimulatedIntent> byCreation = new ConcurrentSkipListMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Override
+    public Intent createIntent(long amountMinor, String currency, Long orderId) throws PaymentGatewayException {
+        call();
+        String id = "pi_sim_" + UUID.randomUUID().toString().replace("-", "");
+        SimulatedIntent intent = new SimulatedIntent(id, id + "_secret_" + UUID.randomUUID().toString().replace("-", ""),
+                amountMinor, currency, orderId);
+        intents.put(id, intent);
+        byCreation.put(intent.creationKey(), intent);
+        if (orderId != null && settleDelayMs >= 0) {
+            taskScheduler.schedule(() -> settler.execute(() -> settle(intent)), Instant.now().plusMillis(settleDelayMs));
+        }
+        return intent.toIntent();
+    }
+
+    @Override
+    public Intent retrieveIntent(String intentId) throws PaymentGatewayException {
+        call();
+        SimulatedIntent intent = intents.get(intentId);
+        if (intent == null) {
+            throw new PaymentGatewayException("Simulator: no such payment intent: " + intentId);
+        }
+        return intent.toIntent();
+    }
+
+    // The cursor is the creation key of the last intent returned
+    @Override
+    public IntentPage listIntents(Instant since, String cursor, int limit) throws PaymentGatewayException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive, got " + limit);
+        }
+        call();
+        String from = cursor != null ? cursor : creationKey(since.toEpochMilli(), "");
+        List<SimulatedIntent> page = byCreation.tailMap(from, false).values().stream()
+                .limit(limit + 1L)
+                .toList();
+        List<Intent> intents = page.stream().limit(limit).map(SimulatedIntent::toIntent).toList();
+        return new IntentPage(intents, page.size() > limit ? page.get(limit - 1).creationKey() : null);
+    }
+
+    // The port is only known once the server listens, which with server.port=0 is a random one
+    @EventListener
+    public void onWebServerStarted(WebServerInitializedEvent event) {
+        if (webhookUrl.isBlank()) {
+            webhookUrl = "http://localhost:" + event.getWebServer().getPort() + "/api/payments/webhook";
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (webhookSecret == null || webhookSecret.isBlank()) {
+            log.warn("Payment simulator active without application.stripe.webhook-secret: payments settle but no webhooks are sent");
+        } else {
+            log.warn("Payment simulator active: no real payments are taken, webhooks go to {}", webhookUrl);
+        }
+    }
+
+    private void call() throws PaymentGatewayException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latencyMs = random.nextDouble() < tailRate
+                ? tailLatencyMs
+                : latencyMinMs + (latencyMaxMs > latencyMinMs ? random.nextLong(latencyMaxMs - latencyMinMs + 1) : 0);
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Simulator: interrupted", true, e);
+        }
+        if (random.nextDouble() < errorRate) {
+            throw new PaymentGatewayException("Simulator: injected provider error", true, null);
+        }
+    }
+
+    private void settle(SimulatedIntent intent) {
+        boolean declined = ThreadLocalRandom.current().nextDouble() < declineRate;
+        // Like Stripe, a declined intent stays open for another attempt
+        intent.status = declined ? IntentStatus.REQUIRES_PAYMENT : IntentStatus.SUCCEEDED;
+        intent.settledAt = System.currentTimeMillis();
+        if (webhookSecret == null || webhookSecret.isBlank()) {
+            return;
+        }
+
+        String payload;
+        try {
+            payload = eventPayload(intent, declined ? "payment_intent.payment_failed" : "payment_intent.succeeded");
+        } catch (JsonProcessingException e) {
+            log.error("Could not build simulated webhook for {}: {}", intent.id, e.getMessage());
+            return;
+        }
+        send(payload);
+        if (ThreadLocalRandom.current().nextDouble() < duplicateRate) {
+            send(payload);
+        }
+    }
+
+    private void send(String payload) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(webhookUrl))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .header("Stripe-Signature", signature(payload))
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error != null) {
+                log.warn("Simulated webhook delivery failed: {}", error.getMessage());
+            } else if (response.statusCode() != 200) {
+                log.warn("Simulated webhook rejected with status {}", response.statusCode());
+            }
+        });
+    }
+
+    // Same shape as a Stripe event, so the webhook endpoint parses it like a real one
+    private String eventPayload(SimulatedIntent intent, String type) throws JsonProcessingException {
+        Map<String, Object> paymentIntent = new LinkedHashMap<>();
+        paymentIntent.put("id", intent.id);
+        paymentIntent.put("object", "payment_intent");
+        paymentIntent.put("amount", intent.amountMinor);
+        paymentIntent.put("currency", intent.currency);
+        paymentIntent.put("status", intent.status == IntentStatus.SUCCEEDED ? "succeeded" : "requires_payment_method");
+        paymentIntent.put("metadata", Map.of("orderId", intent.orderId.toString()));
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", "evt_sim_" + UUID.randomUUID().toString().replace("-", ""));
+        event.put("object", "event");
+        event.put("api_version", Stripe.API_VERSION);
+        event.put("created", intent.settledAt / 1000);
+        event.put("type", type);
+        event.put("data", Map.of("object", paymentIntent));
+        return objectMapper.writeValueAsString(event);
+    }
+
+    // Stripe-Signature header: t=<seconds>,v1=hex(HMAC-SHA256(secret, "<seconds>.<payload>"))
+    private String signature(String payload) {
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign simulated webhook", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.payments.simulator.retention-ms:3600000}",
+            initialDelayString = "${application.payments.simulator.retention-ms:3600000}")
+    void purge() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        byCreation.headMap(creationKey(cutoff, ""), false).clear();
+        intents.values().removeIf(intent -> intent.createdAt < cutoff);
+    }
+
+    // Sorts by creation time, then id
+    private static String creationKey(long createdAtMs, String id) {
+        return String.format("%013d:%s", createdAtMs, id);
+    }
+
+    private static final class SimulatedIntent {
+
+        private final String id;
+        private final String clientSecret;
+        private final long amountMinor;
+        private final String currency;
+        private final Long orderId;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile IntentStatus status = IntentStatus.REQUIRES_PAYMENT;
+        private volatile long settledAt;
+
+        SimulatedIntent(String id, String clientSecret, long amountMinor, String currency, Long orderId) {
+            this.id = id;
+            this.clientSecret = clientSecret;
+            this.amountMinor = amountMinor;
+            this.currency = currency;
+            this.orderId = orderId;
+        }
+
+        String creationKey() {
+            return SimulatedPaymentGateway.creationKey(createdAt, id);
+        }
+
+        Intent toIntent() {
+            return new Intent(id, clientSecret, orderId, status);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.backend.smartshop.service;
+
+import java.util.Locale;
+import java.util.OptionalDouble;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsing for the free-text {@code ProductSpecification} fields ("6.7\"", "12GB", "1TB", "5000mAh").
+ */
+final class SpecValues {
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:[.,]\\d+)?");
+
+    private SpecValues() {
+    }
+
+    static OptionalDouble number(String value) {
+        if (value == null) {
+            return OptionalDouble.empty();
+        }
+        Matcher matcher = NUMBER.matcher(value);
+        if (!matcher.find()) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(Double.parseDouble(matcher.group().replace(',', '.')));
+    }
+
+    static OptionalDouble capacityInGb(String value) {
+        OptionalDouble amount = number(value);
+        if (amount.isPresent() && value.toUpperCase(Locale.ROOT).contains("TB")) {
+            return OptionalDouble.of(amount.getAsDouble() * 1024);
+        }
+        return amount;
+    }
+}
@@ -0,0 +1,104 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.exception.PaymentGatewayException;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.PaymentIntentCollection;
+import com.stripe.param.PaymentIntentListParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "application.payments.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    // Stripe's limit for list calls
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Override
+    public Intent createIntent(long amountMinor, String currency, Long orderId) throws PaymentGatewayException {
+        PaymentIntentCreateParams.Builder paramsBuilder = PaymentIntentCreateParams.builder()
+                .setAmount(amountMinor)
+                .setCurrency(currency)
+                .setAutomaticPaymentMethods(
+                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                                .setEnabled(true)
+                                .build()
+                );
+
+        if (orderId != null) {
+            paramsBuilder.putMetadata("orderId", orderId.toString());
+        }
+
+        try {
+            return toIntent(PaymentIntent.create(paramsBuilder.build()));
+        } catch (StripeException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public Intent retrieveIntent(String intentId) throws PaymentGatewayException {
+        try {
+            return toIntent(PaymentIntent.retrieve(intentId));
+        } catch (StripeException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public IntentPage listIntents(Instant since, String cursor, int limit) throws PaymentGatewayException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive, got " + limit);
+        }
+        PaymentIntentListParams.Builder params = PaymentIntentListParams.builder()
+                .setCreated(PaymentIntentListParams.Created.builder().setGte(since.getEpochSecond()).build())
+                .setLimit((long) Math.min(limit, MAX_PAGE_SIZE));
+        if (cursor != null) {
+            params.setStartingAfter(cursor);
+        }
+
+        try {
+            PaymentIntentCollection page = PaymentIntent.list(params.build());
+            List<Intent> intents = page.getData().stream().map(StripePaymentGateway::toIntent).toList();
+            boolean more = Boolean.TRUE.equals(page.getHasMore()) && !intents.isEmpty();
+            return new IntentPage(intents, more ? intents.get(intents.size() - 1).id() : null);
+        } catch (StripeException e) {
+            throw failure(e);
+        }
+    }
+
+    // Connection problems, Stripe-side errors and rate limiting mean Stripe is unavailable, not that the request was bad
+    private static PaymentGatewayException failure(StripeException e) {
+        boolean unavailable = e instanceof ApiConnectionException || e instanceof ApiException || e instanceof RateLimitException;
+        return new PaymentGatewayException("Stripe: " + e.getMessage(), unavailable, e);
+    }
+
+    private static Intent toIntent(PaymentIntent paymentIntent) {
+        String orderId = paymentIntent.getMetadata() != null ? paymentIntent.getMetadata().get("orderId") : null;
+        return new Intent(paymentIntent.getId(), paymentIntent.getClientSecret(),
+                orderId != null ? Long.valueOf(orderId) : null, status(paymentIntent));
+    }
+
+    private static IntentStatus status(PaymentIntent paymentIntent) {
+        String status = paymentIntent.getStatus();
+        if (status == null) {
+            return IntentStatus.REQUIRES_PAYMENT;
+        }
+        return switch (status) {
+            case "succeeded" -> IntentStatus.SUCCEEDED;
+            case "canceled" -> IntentStatus.FAILED;
+            case "processing", "requires_capture" -> IntentStatus.PROCESSING;
+            // Including a declined attempt, which returns the intent to requires_payment_method so the
+            // customer can try another card
+            default -> IntentStatus.REQUIRES_PAYMENT;
+        };
+    }
+}
@@ -1,78 +1,85 @@
 package com.backend.smartshop.service;
 
+import com.backend.smartshop.domain.EmailType;
 import com.backend.smartshop.domain.Order;
+import com.backend.smartshop.domain.OrderItem;
 import com.backend.smartshop.domain.OrderStatus;
 import com.backend.smartshop.dto.OrderResponse;
 import com.backend.smartshop.dto.PaymentIntentRequest;
 import com.backend.smartshop.dto.PaymentIntentResponse;
+import com.backend.smartshop.exception.InsufficientStockException;
+import com.backend.smartshop.exception.PaymentGatewayException;
 import com.backend.smartshop.repository.OrderRepository;
-import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
-import com.stripe.param.PaymentIntentCreateParams;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class StripeService {
 
+    private final PaymentGateway paymentGateway;
+    private final PaymentGatewayGuard gatewayGuard;
     private final OrderRepository orderRepository;
     private final OrderService orderService;
-    private final EmailService emailService;
-
-    public PaymentIntentResponse createPaymentIntent(PaymentIntentRequest request) throws StripeException {
-        long amountInCents = request.getAmount().multiply(new BigDecimal("100")).longValue();
-
-        PaymentIntentCreateParams.Builder paramsBuilder = PaymentIntentCreateParams.builder()
-                .setAmount(amountInCents)
-                .setCurrency(request.getCurrency() != null ? request.getCurrency() : "ron")
-                .setAutomaticPaymentMethods(
-                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
-                                .setEnabled(true)
-                                .build()
-                );
-
-        if (request.getOrderId() != null) {
-            paramsBuilder.putMetadata("orderId", request.getOrderId().toString());
-        }
+    private final EmailOutbox emailOutbox;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SalesStatsService salesStats;
+    private final PlatformTransactionManager transactionManager;
+
+    public PaymentIntentResponse createPaymentIntent(PaymentIntentRequest request) throws PaymentGatewayException {
+        BigDecimal amount = amountToCharge(request);
+        long amountInCents = amount.multiply(new BigDecimal("100")).longValue();
+        String currency = request.getCurrency() != null ? request.getCurrency() : "ron";
 
-        PaymentIntent paymentIntent = PaymentIntent.create(paramsBuilder.build());
+        PaymentGateway.Intent intent = gatewayGuard.call("create",
+                () -> paymentGateway.createIntent(amountInCents, currency, request.getOrderId()));
 
-        log.info("Created payment intent: {} for amount: {} {}",
-                paymentIntent.getId(), request.getAmount(), request.getCurrency());
+        log.info("Created payment intent: {} for amount: {} {}", intent.id(), amount, currency);
 
         return PaymentIntentResponse.builder()
-                .clientSecret(paymentIntent.getClientSecret())
-                .paymentIntentId(paymentIntent.getId())
+                .clientSecret(intent.clientSecret())
+                .paymentIntentId(intent.id())
                 .build();
     }
 
+    // An order is charged its stored total; the client's amount is only checked against it. Every intent
+    // belongs to an order, so a payment can always be matched to the order whose stock it reserved
+    private BigDecimal amountToCharge(PaymentIntentRequest request) {
+        if (request.getOrderId() == null) {
+            throw new IllegalArgumentException("A payment must be for an order");
+        }
+        Order order = orderRepository.findById(request.getOrderId())
+                .orElseThrow(() -> new IllegalArgumentException("Order not found"));
+        if (order.getStatus() != OrderStatus.PENDING) {
+            throw new IllegalArgumentException("Order " + order.getOrderCode() + " is not awaiting payment");
+        }
+        if (request.getAmount() != null && request.getAmount().compareTo(order.getTotal()) != 0) {
+            log.warn("Payment intent for order {} requested {} but the order total is {}",
+                    order.getOrderCode(), request.getAmount(), order.getTotal());
+            throw new IllegalArgumentException("Payment amount does not match the total of order " + order.getOrderCode());
+        }
+        return order.getTotal();
+    }
+
     public void handlePaymentSuccess(String paymentIntentId) {
         try {
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-            String orderIdStr = paymentIntent.getMetadata().get("orderId");
-
-            if (orderIdStr != null) {
-                Long orderId = Long.parseLong(orderIdStr);
-                Order order = orderRepository.findById(orderId)
-                        .orElseThrow(() -> new RuntimeException("Order not found"));
-
-                order.setStatus(OrderStatus.PROCESSING);
-                orderRepository.save(order);
+            Long orderId = gatewayGuard.call("retrieve", () -> paymentGateway.retrieveIntent(paymentIntentId)).orderId();
 
-                log.info("Order {} marked as PROCESSING after successful payment", orderId);
-
-                try {
-                    OrderResponse orderResponse = orderService.getOrderById(orderId, order.getUser().getEmail());
-                    emailService.sendOrderConfirmationEmail(orderResponse);
-                } catch (Exception emailError) {
-                    log.error("Failed to send confirmation email for order {}: {}",
-                            orderId, emailError.getMessage());
-                }
+            if (orderId != null) {
+                markPaid(orderId);
             }
         } catch (Exception e) {
             log.error("Error handling payment success: {}", e.getMessage());
@@ -81,21 +88,138 @@ public class StripeService {
 
     public void handlePaymentFailure(String paymentIntentId) {
         try {
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-            String orderIdStr = paymentIntent.getMetadata().get("orderId");
+            PaymentGateway.Intent intent = gatewayGuard.call("retrieve", () -> paymentGateway.retrieveIntent(paymentIntentId));
 
-            if (orderIdStr != null) {
-                Long orderId = Long.parseLong(orderIdStr);
+            // A declined card leaves the intent open for another attempt; only a cancelled one ends the order
+            if (intent.orderId() != null && intent.status() == PaymentGateway.IntentStatus.FAILED) {
+                markFailed(intent.orderId());
+            }
+        } catch (Exception e) {
+            log.error("Error handling payment failure: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Safe to repeat: an order that is already paid is left alone and gets no second email. A
+     * payment for a cancelled order revives it only if its stock can be taken again; otherwise the
+     * order stays cancelled and is flagged for a refund.
+     */
+    public void markPaid(Long orderId) {
+        OrderStatus previous;
+        try {
+            previous = new TransactionTemplate(transactionManager).execute(status -> {
                 Order order = orderRepository.findById(orderId)
                         .orElseThrow(() -> new RuntimeException("Order not found"));
 
-                order.setStatus(OrderStatus.CANCELLED);
-                orderRepository.save(order);
+                OrderStatus from = order.getStatus();
+                // Conditional, so a concurrent webhook or reconciliation run changes the order only once
+                // An order already flagged for a refund stays cancelled, even if stock is back by now
+                if ((from != OrderStatus.PENDING && from != OrderStatus.CANCELLED)
+                        || order.getRefundRequiredAt() != null
+                        || orderRepository.updateStatus(orderId, from, OrderStatus.PROCESSING) != 1) {
+                    return null;
+                }
+                if (from == OrderStatus.CANCELLED) {
+                    // Its stock went back on sale when it was cancelled. The conditional decrement
+                    // takes it again, or throws if it has been sold since and rolls all of this back
+                    inventoryService.reserve(orderId, quantitiesOf(order));
+                }
+                inventoryService.commit(orderId);
+                salesStats.statusChanged(order, from, OrderStatus.PROCESSING);
+                eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, OrderStatus.PROCESSING));
+                emailOutbox.enqueue(EmailType.ORDER_CONFIRMATION, orderService.getOrderResponses(List.of(orderId)).get(0));
+                return from;
+            });
+        } catch (InsufficientStockException e) {
+            flagForRefund(orderId, e);
+            return;
+        }
+
+        if (previous != null) {
+            emailOutbox.wakeUp();
+            log.info("Order {} marked as PROCESSING after successful payment{}", orderId,
+                    previous == OrderStatus.CANCELLED ? " (revived from CANCELLED)" : "");
+        }
+    }
 
-                log.info("Order {} marked as CANCELLED after payment failure", orderId);
+    private void flagForRefund(Long orderId, InsufficientStockException cause) {
+        Integer flagged = new TransactionTemplate(transactionManager).execute(status ->
+                orderRepository.markRefundRequired(orderId, LocalDateTime.now()));
+        if (flagged != null && flagged == 1) {
+            log.warn("Order {} was paid after being cancelled, but products {} have sold out since; "
+                    + "it stays CANCELLED and the payment must be refunded", orderId, cause.getProductIds());
+        }
+    }
+
+    private static Map<Long, Integer> quantitiesOf(Order order) {
+        return order.getItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), OrderItem::getQuantity, Integer::sum));
+    }
+
+    // Only an unpaid order is cancelled; a failure reported after a later successful attempt is ignored
+    public void markFailed(Long orderId) {
+        boolean changed = Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+
+            if (order.getStatus() != OrderStatus.PENDING
+                    || orderRepository.updateStatus(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED) != 1) {
+                return false;
             }
-        } catch (Exception e) {
-            log.error("Error handling payment failure: {}", e.getMessage());
+            // The reserved stock goes back on sale right away instead of when the reservation expires
+            inventoryService.release(orderId);
+            salesStats.statusChanged(order, OrderStatus.PENDING, OrderStatus.CANCELLED);
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, OrderStatus.CANCELLED));
+            return true;
+        }));
+
+        if (changed) {
+            log.info("Order {} marked as CANCELLED after payment failure", orderId);
+        }
+    }
+
+    /**
+     * Set-based {@link #markPaid} for batch callers: locks the orders that are still PENDING and
+     * moves them, their reservations and the sales rollups with one statement each. Returns the
+     * ids actually changed; the others were changed concurrently.
+     */
+    public List<Long> markAllPaid(Collection<Long> orderIds) {
+        List<Long> paid = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Order> orders = orderRepository.lockByIdInAndStatus(orderIds, OrderStatus.PENDING);
+            if (orders.isEmpty()) {
+                return List.<Long>of();
+            }
+            List<Long> ids = orders.stream().map(Order::getId).toList();
+            orderRepository.updateStatuses(ids, OrderStatus.PENDING, OrderStatus.PROCESSING);
+            inventoryService.commitAll(ids);
+            salesStats.statusesChanged(orders, OrderStatus.PENDING, OrderStatus.PROCESSING);
+            ids.forEach(id -> eventPublisher.publishEvent(new OrderStatusChangedEvent(id, OrderStatus.PROCESSING)));
+            // Read after the status update, so the emails show the orders as PROCESSING
+            for (OrderResponse response : orderService.getOrderResponses(ids)) {
+                emailOutbox.enqueue(EmailType.ORDER_CONFIRMATION, response);
+            }
+            return ids;
+        });
+
+        if (!paid.isEmpty()) {
+            emailOutbox.wakeUp();
         }
+        return paid;
+    }
+
+    // Set-based markFailed(); returns the ids actually cancelled
+    public List<Long> markAllFailed(Collection<Long> orderIds) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<Order> orders = orderRepository.lockByIdInAndStatus(orderIds, OrderStatus.PENDING);
+            if (orders.isEmpty()) {
+                return List.<Long>of();
+            }
+            List<Long> ids = orders.stream().map(Order::getId).toList();
+            orderRepository.updateStatuses(ids, OrderStatus.PENDING, OrderStatus.CANCELLED);
+            inventoryService.releaseAll(ids);
+            salesStats.statusesChanged(orders, OrderStatus.PENDING, OrderStatus.CANCELLED);
+            ids.forEach(id -> eventPublisher.publishEvent(new OrderStatusChangedEvent(id, OrderStatus.CANCELLED)));
+            return ids;
+        });
     }
 }
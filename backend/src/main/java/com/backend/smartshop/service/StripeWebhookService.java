@@ -0,0 +1,223 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.StripeWebhookEvent;
+import com.backend.smartshop.domain.WebhookEventStatus;
+import com.backend.smartshop.repository.StripeWebhookEventRepository;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stripe webhook pipeline. {@link #receive} verifies the signature, stores the event under its
+ * unique id and queues it, all without calling Stripe, so the webhook is acknowledged at once
+ * and redeliveries are dropped. Events are processed on a fixed set of single-threaded lanes
+ * chosen by order id: events of one order run one at a time in arrival order, different orders
+ * run in parallel. Events that could not be queued or failed are picked up again by a recovery
+ * poll, which also resumes events left behind by a restart.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StripeWebhookService {
+
+    private static final Set<String> SUCCEEDED = Set.of("payment_intent.succeeded");
+    // A declined attempt (payment_intent.payment_failed) leaves the intent open for another try, so
+    // only a cancelled intent cancels the order; an abandoned one is left to the reservation expiry
+    private static final Set<String> CANCELED = Set.of("payment_intent.canceled");
+    private static final List<WebhookEventStatus> DISPATCHABLE = List.of(WebhookEventStatus.RECEIVED, WebhookEventStatus.PROCESSING);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final StripeWebhookEventRepository repository;
+    private final StripeService stripeService;
+    private final ThreadPoolTaskExecutorBuilder executorBuilder;
+
+    @Value("${application.stripe.webhook-secret:}")
+    private String webhookSecret;
+
+    @Value("${application.stripe.webhook.workers:4}")
+    private int laneCount;
+
+    @Value("${application.stripe.webhook.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${application.stripe.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${application.stripe.webhook.retry-delay-ms:30000}")
+    private long retryDelayMs;
+
+    // An event still PROCESSING after this long is assumed lost with its node and queued again
+    @Value("${application.stripe.webhook.lease-ms:120000}")
+    private long leaseMs;
+
+    private ThreadPoolTaskExecutor[] lanes;
+
+    public enum Outcome {
+        ACCEPTED,
+        DUPLICATE,
+        IGNORED
+    }
+
+    public boolean isConfigured() {
+        return webhookSecret != null && !webhookSecret.isBlank();
+    }
+
+    public Outcome receive(String payload, String signature) throws SignatureVerificationException {
+        if (signature == null) {
+            throw new SignatureVerificationException("Missing Stripe-Signature header", null);
+        }
+        Event event = Webhook.constructEvent(payload, signature, webhookSecret);
+        if (!SUCCEEDED.contains(event.getType()) && !CANCELED.contains(event.getType())) {
+            return Outcome.IGNORED;
+        }
+        if (repository.existsByEventId(event.getId())) {
+            return Outcome.DUPLICATE;
+        }
+
+        PaymentIntent paymentIntent = paymentIntentOf(event);
+        String orderId = paymentIntent != null && paymentIntent.getMetadata() != null
+                ? paymentIntent.getMetadata().get("orderId") : null;
+        if (orderId == null) {
+            log.warn("Stripe event {} ({}) has no orderId metadata, ignoring it", event.getId(), event.getType());
+            return Outcome.IGNORED;
+        }
+
+        StripeWebhookEvent stored;
+        try {
+            stored = repository.save(StripeWebhookEvent.builder()
+                    .eventId(event.getId())
+                    .type(event.getType())
+                    .paymentIntentId(paymentIntent.getId())
+                    .orderId(Long.parseLong(orderId))
+                    .status(WebhookEventStatus.RECEIVED)
+                    .nextAttemptAt(LocalDateTime.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // The same event arrived concurrently and the other delivery stored it
+            return Outcome.DUPLICATE;
+        }
+        dispatch(stored.getId(), stored.getOrderId());
+        return Outcome.ACCEPTED;
+    }
+
+    // One single-threaded executor per lane rather than one shared pool, as a shared pool would not
+    // keep the events of an order in order
+    @PostConstruct
+    void startLanes() {
+        lanes = new ThreadPoolTaskExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = executorBuilder
+                    .corePoolSize(1)
+                    .maxPoolSize(1)
+                    .queueCapacity(queueCapacity)
+                    .threadNamePrefix("stripe-webhook-" + (i + 1) + "-")
+                    // Unfinished events keep their lease and are recovered after a restart
+                    .awaitTermination(true)
+                    .awaitTerminationPeriod(Duration.ofSeconds(5))
+                    .build();
+            lanes[i].initialize();
+        }
+    }
+
+    @PreDestroy
+    void stopLanes() {
+        for (ThreadPoolTaskExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private void dispatch(Long id, Long orderId) {
+        try {
+            lanes[Math.floorMod(orderId.hashCode(), lanes.length)].execute(() -> process(id));
+        } catch (TaskRejectedException e) {
+            // Still RECEIVED in the table; the next recovery poll queues it
+            log.warn("Stripe webhook queue full, event {} deferred to recovery", id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.stripe.webhook.recovery-interval-ms:30000}")
+    void recover() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (StripeWebhookEvent event : repository.findDue(DISPATCHABLE, now, PageRequest.of(0, queueCapacity))) {
+                dispatch(event.getId(), event.getOrderId());
+            }
+        } catch (RuntimeException e) {
+            log.error("Stripe webhook recovery failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void process(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        if (repository.claim(id, DISPATCHABLE, WebhookEventStatus.PROCESSING, now, now.plus(Duration.ofMillis(leaseMs))) != 1) {
+            return;
+        }
+        StripeWebhookEvent event = repository.findById(id).orElse(null);
+        if (event == null) {
+            return;
+        }
+
+        try {
+            if (SUCCEEDED.contains(event.getType())) {
+                stripeService.markPaid(event.getOrderId());
+            } else if (CANCELED.contains(event.getType())) {
+                stripeService.markFailed(event.getOrderId());
+            }
+            event.setStatus(WebhookEventStatus.PROCESSED);
+            event.setProcessedAt(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            recordFailure(event, e);
+        }
+        repository.save(event);
+    }
+
+    private void recordFailure(StripeWebhookEvent event, Exception error) {
+        int attempts = event.getAttempts() + 1;
+        String reason = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+        event.setAttempts(attempts);
+        event.setLastError(reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason);
+        if (attempts >= maxAttempts) {
+            event.setStatus(WebhookEventStatus.FAILED);
+            log.error("Giving up on Stripe event {} for order {} after {} attempts: {}",
+                    event.getEventId(), event.getOrderId(), attempts, reason);
+            return;
+        }
+        event.setStatus(WebhookEventStatus.RECEIVED);
+        event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(retryDelayMs)));
+        log.warn("Stripe event {} for order {} failed (attempt {}): {}", event.getEventId(), event.getOrderId(), attempts, reason);
+    }
+
+    // Falls back to the raw payload when the event's API version differs from the library's
+    private static PaymentIntent paymentIntentOf(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object == null) {
+            try {
+                object = event.getDataObjectDeserializer().deserializeUnsafe();
+            } catch (EventDataObjectDeserializationException e) {
+                log.warn("Could not read Stripe event {}: {}", event.getId(), e.getMessage());
+                return null;
+            }
+        }
+        return object instanceof PaymentIntent paymentIntent ? paymentIntent : null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.backend.smartshop.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares, per thread. Unlike Hibernate's statistics, the
+ * count of a test thread is not touched by statements the scheduled jobs run at the same time.
+ * Registered with {@code hibernate.session_factory.statement_inspector} in the test profile.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    // Statements prepared by the calling thread since its last reset
+    public static long count() {
+        return COUNT.get()[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+}
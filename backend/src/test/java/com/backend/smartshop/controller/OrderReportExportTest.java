@@ -0,0 +1,112 @@
+package com.backend.smartshop.controller;
+
+import com.backend.smartshop.config.JwtService;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.Role;
+import com.backend.smartshop.domain.User;
+import com.backend.smartshop.dto.OrderRequest;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.UserRepository;
+import com.backend.smartshop.service.OrderService;
+import com.backend.smartshop.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The order report is streamed on an async dispatch, and its CSV cells come partly from user input.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderReportExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void csvReportStreamsThroughTheAsyncDispatchWithFormulasNeutralised() throws Exception {
+        String email = "report-" + System.nanoTime() + "@example.com";
+        userRepository.save(User.builder()
+                .email(email)
+                .password("unused")
+                .firstName("Report")
+                .lastName("Er")
+                .role(Role.USER)
+                .build());
+        User admin = userRepository.save(User.builder()
+                .email("report-admin-" + System.nanoTime() + "@example.com")
+                .password("unused")
+                .firstName("Report")
+                .lastName("Admin")
+                .role(Role.ADMIN)
+                .build());
+        Product product = productService.createProduct(Product.builder()
+                .name("=HYPERLINK(\"http://example.com\",\"Phone\")")
+                .price(new BigDecimal("899.90"))
+                .stock(3)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+        orderService.createOrder(OrderRequest.builder()
+                .deliveryName("Report Er")
+                .deliveryEmail(email)
+                .deliveryCity("@Cluj")
+                .items(List.of(OrderRequest.OrderItemRequest.builder()
+                        .product(new OrderRequest.ProductReference(product.getId()))
+                        .quantity(1)
+                        .build()))
+                .build(), email);
+
+        MvcResult started = mockMvc.perform(get("/api/admin/reports/orders")
+                        .param("productId", product.getId().toString())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generateToken(admin)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult(10_000);
+
+        String csv = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = csv.lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(1))
+                .contains(",'@Cluj,")
+                .contains(",\"'=HYPERLINK(\"\"http://example.com\"\",\"\"Phone\"\")\",")
+                .doesNotContain(",=HYPERLINK");
+    }
+}
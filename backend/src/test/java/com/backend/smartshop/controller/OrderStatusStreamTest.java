@@ -0,0 +1,105 @@
+package com.backend.smartshop.controller;
+
+import com.backend.smartshop.config.JwtService;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.Role;
+import com.backend.smartshop.domain.User;
+import com.backend.smartshop.dto.OrderRequest;
+import com.backend.smartshop.dto.OrderResponse;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.UserRepository;
+import com.backend.smartshop.service.OrderService;
+import com.backend.smartshop.service.ProductService;
+import com.backend.smartshop.service.StripeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The order status stream completes on an async dispatch, which carries no JWT of its own and
+ * must not be rejected by the security filter chain.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderStatusStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StripeService stripeService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void streamOfAFinishedOrderCompletesThroughTheAsyncDispatch() throws Exception {
+        String email = "stream-" + System.nanoTime() + "@example.com";
+        User user = userRepository.save(User.builder()
+                .email(email)
+                .password("unused")
+                .firstName("Stream")
+                .lastName("Er")
+                .role(Role.USER)
+                .build());
+        Product product = productService.createProduct(Product.builder()
+                .name("Stream Test Phone " + System.nanoTime())
+                .price(new BigDecimal("999.90"))
+                .stock(3)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+        OrderResponse order = orderService.createOrder(OrderRequest.builder()
+                .deliveryName("Stream Er")
+                .deliveryEmail(email)
+                .items(List.of(OrderRequest.OrderItemRequest.builder()
+                        .product(new OrderRequest.ProductReference(product.getId()))
+                        .quantity(1)
+                        .build()))
+                .build(), email);
+        // A final status closes the stream right after its first event
+        stripeService.markFailed(order.getId());
+
+        MvcResult started = mockMvc.perform(get("/api/orders/code/" + order.getOrderCode() + "/events")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generateToken(user)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult(10_000);
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("CANCELLED")));
+    }
+}
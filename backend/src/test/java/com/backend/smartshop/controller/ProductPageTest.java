@@ -0,0 +1,108 @@
+package com.backend.smartshop.controller;
+
+import com.backend.smartshop.domain.Brand;
+import com.backend.smartshop.domain.Category;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.dto.ProductDTO;
+import com.backend.smartshop.dto.ProductPage;
+import com.backend.smartshop.dto.ProductQuery;
+import com.backend.smartshop.dto.ProductSort;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.service.CatalogSnapshotService;
+import com.backend.smartshop.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Keyset pages of a category, a brand or a search hold exactly the products a filter over the
+ * whole catalog ordering would, in the same order.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductPageTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CatalogSnapshotService catalog;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Test
+    void filteredPagesMatchTheWholeOrderingFiltered() {
+        Category category = categoryRepository.findAll().get(0);
+        Brand brand = brandRepository.findAll().get(0);
+        String name = "Paging Phone " + System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            productService.createProduct(Product.builder()
+                    .name(name + " " + i)
+                    .price(BigDecimal.valueOf(900 - i % 2 * 100L))
+                    .stock(4)
+                    .category(category)
+                    .brand(brand)
+                    .build());
+        }
+
+        for (ProductSort sort : ProductSort.values()) {
+            assertThat(allPages(ProductQuery.builder().sort(sort).categoryId(category.getId()).build()))
+                    .as("category, %s", sort)
+                    .isEqualTo(expected(sort, product -> category.getId().equals(product.getCategoryId())));
+            assertThat(allPages(ProductQuery.builder().sort(sort).brandId(brand.getId()).build()))
+                    .as("brand, %s", sort)
+                    .isEqualTo(expected(sort, product -> brand.getId().equals(product.getBrandId())));
+            assertThat(allPages(ProductQuery.builder().sort(sort).q(name).build()))
+                    .as("search, %s", sort)
+                    .hasSize(5)
+                    .isEqualTo(expected(sort, product -> product.getName().startsWith(name)));
+        }
+    }
+
+    @Test
+    void unknownSortIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/products").param("size", "10").param("sort", "CHEAPEST"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Parametri invalizi: sort"));
+    }
+
+    private List<Long> allPages(ProductQuery query) {
+        query.setSize(2);
+        List<Long> ids = new ArrayList<>();
+        do {
+            ProductPage page = productService.getProductPage(query);
+            page.getItems().forEach(product -> ids.add(product.getId()));
+            query.setCursor(page.getNextCursor());
+        } while (query.getCursor() != null);
+        return ids;
+    }
+
+    private List<Long> expected(ProductSort sort, Predicate<ProductDTO> filter) {
+        return catalog.current().getOrdering(sort).stream()
+                .filter(filter)
+                .map(ProductDTO::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,170 @@
+package com.backend.smartshop.controller;
+
+import com.backend.smartshop.config.StatementCounter;
+import com.backend.smartshop.domain.Brand;
+import com.backend.smartshop.domain.Category;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.ProductSpecification;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.ProductRepository;
+import com.backend.smartshop.service.CatalogSnapshotService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statements issued per catalog read endpoint, counted on the test thread. Product reads
+ * are served from the catalog snapshot, so the counts must not grow with the number of products.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductQueryCountTest {
+
+    private static final int EXTRA_PRODUCTS = 60;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogSnapshotService catalog;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    private final List<Long> extraProductIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        catalog.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (!extraProductIds.isEmpty()) {
+            productRepository.deleteAllById(extraProductIds);
+            catalog.reload();
+        }
+    }
+
+    @Test
+    void snapshotReloadIsOneStatementRegardlessOfCatalogSize() {
+        long seeded = statementsFor(catalog::reload);
+        addProducts(EXTRA_PRODUCTS);
+        long grown = statementsFor(catalog::reload);
+
+        assertThat(seeded).isEqualTo(1);
+        assertThat(grown).isEqualTo(seeded);
+    }
+
+    @Test
+    void productReadEndpointsIssueConstantStatementCounts() throws Exception {
+        Map<String, Long> seeded = endpointStatementCounts();
+        addProducts(EXTRA_PRODUCTS);
+        catalog.reload();
+        Map<String, Long> grown = endpointStatementCounts();
+
+        // Every read is answered from the snapshot
+        assertThat(seeded).allSatisfy((endpoint, statements) -> assertThat(statements).as(endpoint).isZero());
+        assertThat(grown).isEqualTo(seeded);
+    }
+
+    @Test
+    void productDetailEncodingsShareAWeakEtag() throws Exception {
+        String detail = "/api/products/" + productRepository.findAllWithDetails().get(0).getId();
+
+        String gzipEtag = mockMvc.perform(get(detail).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String plainEtag = mockMvc.perform(get(detail))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The bodies differ byte for byte, so the shared validator must not claim strong equality
+        assertThat(gzipEtag).startsWith("W/").isEqualTo(plainEtag);
+        mockMvc.perform(get(detail).header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    private Map<String, Long> endpointStatementCounts() throws Exception {
+        Product sample = productRepository.findAllWithDetails().get(0);
+        Long categoryId = sample.getCategory().getId();
+        Long brandId = sample.getBrand().getId();
+
+        List<String> endpoints = List.of(
+                "/api/products",
+                "/api/products?size=20",
+                "/api/products/" + sample.getId(),
+                "/api/products/search?q=galaxy",
+                "/api/products/category/" + categoryId,
+                "/api/products/category/" + categoryId + "?size=20",
+                "/api/products/brand/" + brandId,
+                "/api/products/brand/" + brandId + "?size=20");
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            StatementCounter.reset();
+            mockMvc.perform(get(endpoint)).andExpect(status().isOk());
+            counts.put(endpoint, StatementCounter.count());
+        }
+        return counts;
+    }
+
+    private long statementsFor(Runnable action) {
+        StatementCounter.reset();
+        action.run();
+        return StatementCounter.count();
+    }
+
+    // Spread over every seeded category and brand, each with a specification, so that any lazy
+    // association touched per product would show up as extra statements
+    private void addProducts(int count) {
+        List<Category> categories = categoryRepository.findAll();
+        List<Brand> brands = brandRepository.findAll();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = Product.builder()
+                    .name("Query Count Phone " + i)
+                    .description("Generated for statement counting")
+                    .price(BigDecimal.valueOf(500 + i * 10L))
+                    .stock(10)
+                    .category(categories.get(i % categories.size()))
+                    .brand(brands.get(i % brands.size()))
+                    .build();
+            ProductSpecification spec = ProductSpecification.builder()
+                    .product(product)
+                    .ram((4 + i % 4 * 2) + "GB")
+                    .storage((64 << (i % 3)) + "GB")
+                    .build();
+            product.setSpecification(spec);
+            products.add(product);
+        }
+        productRepository.saveAll(products).forEach(product -> extraProductIds.add(product.getId()));
+    }
+}
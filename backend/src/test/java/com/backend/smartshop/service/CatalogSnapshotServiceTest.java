@@ -0,0 +1,125 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.CatalogVersion;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CatalogVersionRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes made by another node reach this node's snapshot through the versions in the database.
+ * The other node is simulated by writing the product row and advancing the version directly.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CatalogSnapshotServiceTest {
+
+    @Autowired
+    private CatalogSnapshotService catalog;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogVersionRepository versionRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = productService.createProduct(Product.builder()
+                .name("Snapshot Test Phone " + System.nanoTime())
+                .price(new BigDecimal("699.90"))
+                .stock(8)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+    }
+
+    @Test
+    void etagIsTheDatabaseVersion() {
+        CatalogVersion row = versionRepository.findById(CatalogVersion.ID).orElseThrow();
+
+        assertThat(catalog.etag()).isEqualTo("\"" + row.getVersion() + "." + row.getStockVersion() + "\"");
+    }
+
+    @Test
+    void productWrittenOnAnotherNodeIsReloaded() {
+        String etag = catalog.etag();
+        product.setName("Renamed Elsewhere " + System.nanoTime());
+        productRepository.save(product);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                versionRepository.incrementVersion(CatalogVersion.ID));
+
+        catalog.checkVersions();
+
+        assertThat(catalog.current().findProduct(product.getId()).orElseThrow().getName()).isEqualTo(product.getName());
+        assertThat(catalog.etag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void stockSoldOnAnotherNodeIsRefreshed() {
+        String etag = catalog.etag();
+        product.setStock(3);
+        productRepository.save(product);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                versionRepository.incrementStockVersion(CatalogVersion.ID));
+
+        catalog.checkVersions();
+
+        assertThat(catalog.current().findProduct(product.getId()).orElseThrow().getStock()).isEqualTo(3);
+        assertThat(catalog.etag()).isNotEqualTo(etag);
+        assertThat(catalogVersionOf(catalog.etag())).isEqualTo(catalogVersionOf(etag));
+    }
+
+    @Test
+    void localWriteAfterAnotherNodesWriteReloadsBoth() {
+        Product other = productRepository.findById(product.getId()).orElseThrow();
+        other.setDescription("Changed elsewhere");
+        productRepository.save(other);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                versionRepository.incrementVersion(CatalogVersion.ID));
+
+        Product local = productService.createProduct(Product.builder()
+                .name("Snapshot Local Phone " + System.nanoTime())
+                .price(new BigDecimal("499.90"))
+                .stock(2)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+
+        assertThat(catalog.current().findProduct(product.getId()).orElseThrow().getDescription()).isEqualTo("Changed elsewhere");
+        assertThat(catalog.current().findProduct(local.getId())).isPresent();
+        CatalogVersion row = versionRepository.findById(CatalogVersion.ID).orElseThrow();
+        assertThat(catalogVersionOf(catalog.etag())).isEqualTo(String.valueOf(row.getVersion()));
+    }
+
+    // "12.34" -> "12"
+    private static String catalogVersionOf(String etag) {
+        return etag.substring(1, etag.indexOf('.'));
+    }
+}
@@ -0,0 +1,209 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.ReservationStatus;
+import com.backend.smartshop.domain.Role;
+import com.backend.smartshop.domain.StockReservation;
+import com.backend.smartshop.domain.User;
+import com.backend.smartshop.dto.OrderRequest;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.ProductRepository;
+import com.backend.smartshop.repository.StockReservationRepository;
+import com.backend.smartshop.repository.UserRepository;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Flash-sale contention benchmark: {@value #BUYERS} buyers released at the same instant, each
+ * buying one unit of a single SKU with {@value #STOCK} in stock. Asserts that exactly the stock is
+ * sold and logs the throughput, once through the whole checkout and once for the reservation
+ * step alone, so a slow run shows which part is to blame. Excluded from the default build; run it
+ * with {@code mvn test -Pbenchmark}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+@Slf4j
+class FlashSaleBenchmarkTest {
+
+    private static final int BUYERS = 1000;
+    private static final int STOCK = 500;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Each checkout queues two emails; the outbox must not spend the run on a mail server
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    private Product sku;
+
+    @BeforeEach
+    void setUp() {
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        sku = productService.createProduct(Product.builder()
+                .name("Flash Sale Phone " + System.nanoTime())
+                .price(new BigDecimal("999.00"))
+                .stock(STOCK)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+    }
+
+    @Test
+    void concurrentCheckoutsSellExactlyTheStock() throws Exception {
+        String email = "flash-" + System.nanoTime() + "@example.com";
+        userRepository.save(User.builder()
+                .email(email)
+                .password("unused")
+                .firstName("Flash")
+                .lastName("Buyer")
+                .role(Role.USER)
+                .build());
+        OrderRequest request = OrderRequest.builder()
+                .deliveryName("Flash Buyer")
+                .deliveryEmail(email)
+                .items(List.of(OrderRequest.OrderItemRequest.builder()
+                        .product(new OrderRequest.ProductReference(sku.getId()))
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        Outcome outcome = race("checkout", buyer -> orderService.createOrder(request, email));
+
+        assertThat(outcome.sold()).isEqualTo(STOCK);
+        assertThat(outcome.rejected()).isEqualTo(BUYERS - STOCK);
+        assertThat(stockOf(sku.getId())).isZero();
+        assertThat(reservationRepository.findAll().stream()
+                .filter(reservation -> reservation.getProductId().equals(sku.getId()))
+                .mapToInt(StockReservation::getQuantity)
+                .sum()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void concurrentReservationsSellExactlyTheStock() throws Exception {
+        // Order ids far above any real one; reservations do not reference the order table
+        long firstOrderId = 1_000_000_000L + System.nanoTime() % 1_000_000 * 1000;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Outcome outcome = race("reservation", buyer -> {
+            transaction.executeWithoutResult(status ->
+                    inventoryService.reserve(firstOrderId + buyer, Map.of(sku.getId(), 1)));
+            return null;
+        });
+
+        assertThat(outcome.sold()).isEqualTo(STOCK);
+        assertThat(outcome.rejected()).isEqualTo(BUYERS - STOCK);
+        assertThat(stockOf(sku.getId())).isZero();
+
+        List<Long> orderIds = new ArrayList<>();
+        for (long buyer = 0; buyer < BUYERS; buyer++) {
+            orderIds.add(firstOrderId + buyer);
+        }
+        inventoryService.releaseAll(orderIds);
+        assertThat(stockOf(sku.getId())).isEqualTo(STOCK);
+        assertThat(reservationRepository.findAll().stream()
+                .filter(reservation -> orderIds.contains(reservation.getOrderId()))
+                .allMatch(reservation -> reservation.getStatus() == ReservationStatus.RELEASED)).isTrue();
+    }
+
+    private Outcome race(String label, Buyer buyer) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < BUYERS; i++) {
+                int id = i;
+                Callable<Boolean> attempt = () -> {
+                    start.await();
+                    try {
+                        buyer.buy(id);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        assertThat(e.getMessage()).startsWith("Insufficient stock");
+                        return false;
+                    }
+                };
+                results.add(pool.submit(attempt));
+            }
+
+            long started = System.nanoTime();
+            start.countDown();
+            int sold = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(2, TimeUnit.MINUTES)) {
+                    sold++;
+                }
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            log.info("Flash sale {}: {} buyers, {} sold, {} rejected in {} s ({} attempts/s, {} sales/s)",
+                    label, BUYERS, sold, BUYERS - sold, String.format("%.2f", seconds),
+                    Math.round(BUYERS / seconds), Math.round(sold / seconds));
+            return new Outcome(sold, BUYERS - sold);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int stockOf(Long productId) {
+        return productRepository.findById(productId).orElseThrow().getStock();
+    }
+
+    @FunctionalInterface
+    private interface Buyer {
+        Object buy(int buyer) throws Exception;
+    }
+
+    private record Outcome(int sold, int rejected) {
+    }
+}
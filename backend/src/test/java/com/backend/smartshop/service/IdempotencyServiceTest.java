@@ -0,0 +1,47 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.IdempotencyStatus;
+import com.backend.smartshop.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository repository;
+
+    @Value("${application.idempotency.lease-ms}")
+    private long leaseMs;
+
+    @Test
+    void requestOutlivingItsLeaseKeepsTheKey() throws Exception {
+        String key = "lease-" + System.nanoTime();
+        String recordKey = "test:owner:" + key;
+
+        String response = idempotencyService.execute("test", "owner", key, Map.of("attempt", 1), String.class, () -> {
+            Thread.sleep(3 * leaseMs);
+            // What another node does when it finds the key: take it over only if the lease ran out
+            LocalDateTime now = LocalDateTime.now();
+            repository.deleteIfExpired(recordKey, now);
+            assertThat(repository.insertInProgress(recordKey, "another-request", now, now.plusMinutes(1))).isFalse();
+            assertThat(repository.find(recordKey).orElseThrow().getExpiresAt()).isAfter(now);
+            return "done";
+        });
+
+        assertThat(response).isEqualTo("done");
+        assertThat(repository.find(recordKey).orElseThrow().getStatus()).isEqualTo(IdempotencyStatus.COMPLETED);
+    }
+}
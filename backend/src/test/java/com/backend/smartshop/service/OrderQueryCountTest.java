@@ -0,0 +1,119 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.config.StatementCounter;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.Role;
+import com.backend.smartshop.domain.User;
+import com.backend.smartshop.dto.OrderRequest;
+import com.backend.smartshop.dto.OrderResponse;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Order responses are read with one projection query, however many lines and orders they have.
+ * Statements are counted on the test thread.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderQueryCountTest {
+
+    private static final int LINES = 4;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Product> products = new ArrayList<>();
+    private String email;
+
+    @BeforeEach
+    void setUp() {
+        email = "query-count-" + System.nanoTime() + "@example.com";
+        userRepository.save(User.builder()
+                .email(email)
+                .password("unused")
+                .firstName("Query")
+                .lastName("Counter")
+                .role(Role.USER)
+                .build());
+        for (int i = 0; i < LINES; i++) {
+            products.add(productService.createProduct(Product.builder()
+                    .name("Order Count Phone " + i + " " + System.nanoTime())
+                    .price(BigDecimal.valueOf(300 + i * 100L))
+                    .stock(10)
+                    .category(categoryRepository.findAll().get(0))
+                    .brand(brandRepository.findAll().get(0))
+                    .build()));
+        }
+    }
+
+    @Test
+    void orderByIdAndByCodeIsOneStatementRegardlessOfLines() {
+        OrderResponse single = placeOrder(1);
+        OrderResponse multi = placeOrder(LINES);
+
+        assertThat(statementsFor(() -> orderService.getOrderById(single.getId(), email))).isEqualTo(1);
+        assertThat(statementsFor(() -> orderService.getOrderById(multi.getId(), email))).isEqualTo(1);
+        assertThat(statementsFor(() -> orderService.getOrderByCode(multi.getOrderCode(), email))).isEqualTo(1);
+
+        OrderResponse byCode = orderService.getOrderByCode(multi.getOrderCode(), email);
+        assertThat(byCode.getItems()).hasSize(LINES);
+        assertThat(byCode.getItems()).extracting(OrderResponse.OrderItemResponse::getProductName)
+                .containsExactlyInAnyOrderElementsOf(products.stream().map(Product::getName).toList());
+    }
+
+    @Test
+    void ordersInBulkAreOneStatement() {
+        List<Long> ids = List.of(placeOrder(LINES).getId(), placeOrder(2).getId(), placeOrder(LINES).getId());
+
+        List<OrderResponse> responses = new ArrayList<>();
+        long statements = statementsFor(() -> responses.addAll(orderService.getOrderResponses(ids)));
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(responses).extracting(OrderResponse::getId).containsExactlyElementsOf(ids);
+        assertThat(responses).extracting(response -> response.getItems().size()).containsExactly(LINES, 2, LINES);
+    }
+
+    private OrderResponse placeOrder(int lines) {
+        return orderService.createOrder(OrderRequest.builder()
+                .deliveryName("Query Counter")
+                .deliveryEmail(email)
+                .items(products.subList(0, lines).stream()
+                        .map(product -> OrderRequest.OrderItemRequest.builder()
+                                .product(new OrderRequest.ProductReference(product.getId()))
+                                .quantity(1)
+                                .build())
+                        .toList())
+                .build(), email);
+    }
+
+    private static long statementsFor(Supplier<?> read) {
+        StatementCounter.reset();
+        read.get();
+        return StatementCounter.count();
+    }
+}
@@ -0,0 +1,198 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.exception.PaymentGatewayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The circuit breaker and bulkhead of {@link PaymentGatewayGuard}, driven by fake provider calls.
+ * The breaker opens once half of at least two recorded calls failed and stays open for
+ * {@link #OPEN_MS}.
+ */
+class PaymentGatewayGuardTest {
+
+    private static final long OPEN_MS = 100;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void opensOnTheFailureRateAndFailsFastWhileOpen() throws Exception {
+        PaymentGatewayGuard guard = guard(4, 0, 1000, 1);
+
+        assertThat(guard.call("ok", () -> "paid")).isEqualTo("paid");
+        // A declined payment is the provider working; it does not count against it
+        assertThatThrownBy(() -> guard.call("declined", () -> {
+            throw new PaymentGatewayException("Card declined");
+        })).isInstanceOf(PaymentGatewayException.class);
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("CLOSED");
+        fail(guard);
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("CLOSED");
+        fail(guard);
+
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("OPEN");
+        AtomicBoolean reached = new AtomicBoolean();
+        assertThatThrownBy(() -> guard.call("open", () -> reached.getAndSet(true)))
+                .isInstanceOfSatisfying(PaymentGatewayException.class, e -> assertThat(e.isUnavailable()).isTrue());
+        assertThat(reached).isFalse();
+        assertThat(guard.getStats().getShortCircuited()).isEqualTo(1);
+        assertThat(guard.getStats().getFailures()).isEqualTo(2);
+    }
+
+    @Test
+    void halfOpenAdmitsOnlyTheTrialCallsAndClosesOnceTheySucceed() throws Exception {
+        PaymentGatewayGuard guard = guard(4, 0, 5000, 2);
+        open(guard);
+
+        CountDownLatch provider = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> trial(guard, provider));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> trial(guard, provider));
+        waitFor(() -> executor.getActiveCount() == 2);
+
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("HALF_OPEN");
+        AtomicBoolean reached = new AtomicBoolean();
+        assertThatThrownBy(() -> guard.call("third", () -> reached.getAndSet(true)))
+                .isInstanceOf(PaymentGatewayException.class);
+        assertThat(reached).isFalse();
+
+        provider.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("paid");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("paid");
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("CLOSED");
+        assertThat(guard.getStats().getFailureRate()).isZero();
+    }
+
+    @Test
+    void failedTrialOpensTheCircuitAgain() throws Exception {
+        PaymentGatewayGuard guard = guard(4, 0, 1000, 2);
+        open(guard);
+
+        fail(guard);
+
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("OPEN");
+        assertThatThrownBy(() -> guard.call("open", () -> "paid")).isInstanceOf(PaymentGatewayException.class);
+        assertThat(guard.getStats().getShortCircuited()).isEqualTo(1);
+    }
+
+    @Test
+    void timedOutCallIsInterruptedAndCountsAsAFailure() throws Exception {
+        PaymentGatewayGuard guard = guard(1, 0, 100, 1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> guard.call("slow", () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "paid";
+        })).isInstanceOfSatisfying(PaymentGatewayException.class, e -> assertThat(e.isUnavailable()).isTrue());
+
+        waitFor(() -> interrupted.getCount() == 0);
+        assertThat(guard.getStats().getTimeouts()).isEqualTo(1);
+        assertThat(guard.getStats().getFailureRate()).isEqualTo(1.0);
+    }
+
+    // Both threads stay blocked in calls that timed out, so the trial call is rejected by the bulkhead;
+    // without handing its trial permit back, the circuit could never close again
+    @Test
+    void trialRejectedByTheBulkheadReleasesItsPermit() throws Exception {
+        PaymentGatewayGuard guard = guard(2, 0, 100, 1);
+        CountDownLatch provider = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guard.call("stuck", () -> hang(provider))).isInstanceOf(PaymentGatewayException.class);
+        }
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("OPEN");
+        Thread.sleep(OPEN_MS + 50);
+
+        assertThatThrownBy(() -> guard.call("trial", () -> "paid"))
+                .isInstanceOf(PaymentGatewayException.class)
+                .hasMessageContaining("busy");
+        assertThat(guard.getStats().getRejected()).isEqualTo(1);
+
+        provider.countDown();
+        waitFor(() -> executor.getActiveCount() == 0);
+        assertThat(guard.call("trial", () -> "paid")).isEqualTo("paid");
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("CLOSED");
+        assertThat(guard.getStats().getShortCircuited()).isZero();
+    }
+
+    private PaymentGatewayGuard guard(int threads, int queueCapacity, long timeoutMs, int halfOpenCalls) {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        PaymentGatewayGuard guard = new PaymentGatewayGuard(executor);
+        ReflectionTestUtils.setField(guard, "timeoutMs", timeoutMs);
+        ReflectionTestUtils.setField(guard, "window", 4);
+        ReflectionTestUtils.setField(guard, "minimumCalls", 2);
+        ReflectionTestUtils.setField(guard, "failureRatePercent", 50);
+        ReflectionTestUtils.setField(guard, "openMs", OPEN_MS);
+        ReflectionTestUtils.setField(guard, "halfOpenCalls", halfOpenCalls);
+        guard.start();
+        return guard;
+    }
+
+    // Opens the circuit and waits until the next call is let through as a trial
+    private static void open(PaymentGatewayGuard guard) throws InterruptedException {
+        fail(guard);
+        fail(guard);
+        assertThat(guard.getStats().getCircuitState()).isEqualTo("OPEN");
+        Thread.sleep(OPEN_MS + 50);
+    }
+
+    private static void fail(PaymentGatewayGuard guard) {
+        assertThatThrownBy(() -> guard.call("fail", () -> {
+            throw new PaymentGatewayException("Provider down", true, null);
+        })).isInstanceOf(PaymentGatewayException.class);
+    }
+
+    private static String trial(PaymentGatewayGuard guard, CountDownLatch provider) {
+        try {
+            return guard.call("trial", () -> hang(provider));
+        } catch (PaymentGatewayException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A provider call that ignores interrupts, as one blocked in socket I/O does
+    private static String hang(CountDownLatch provider) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                provider.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return "paid";
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.Role;
+import com.backend.smartshop.domain.User;
+import com.backend.smartshop.dto.OrderRequest;
+import com.backend.smartshop.dto.ProductSuggestion;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSuggestIndexTest {
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private CatalogSnapshotService catalog;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void bestSellerIsSuggestedFirstOnceSalesAreRead() {
+        String word = "zq" + System.nanoTime();
+        Product alpha = createProduct("Suggest " + word + " Alpha");
+        Product beta = createProduct("Suggest " + word + " Beta");
+
+        assertThat(texts(word)).containsExactly(alpha.getName(), beta.getName());
+
+        buy(beta, 2);
+        suggestIndex.onStockChanged(new CatalogStockChangedEvent(catalog.current(), catalog.current(), Set.of()));
+
+        assertThat(texts(word)).containsExactly(beta.getName(), alpha.getName());
+        // Any word of the name completes it, not only the first
+        assertThat(texts(word + " be")).containsExactly(beta.getName());
+        assertThat(texts("beta")).contains(beta.getName());
+    }
+
+    private List<String> texts(String prefix) {
+        return suggestIndex.suggest(prefix, ProductSuggestIndex.MAX_SUGGESTIONS).stream()
+                .map(ProductSuggestion::getText)
+                .toList();
+    }
+
+    private Product createProduct(String name) {
+        return productService.createProduct(Product.builder()
+                .name(name)
+                .price(new BigDecimal("599.90"))
+                .stock(5)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+    }
+
+    private void buy(Product product, int quantity) {
+        String email = "suggest-" + System.nanoTime() + "@example.com";
+        userRepository.save(User.builder()
+                .email(email)
+                .password("unused")
+                .firstName("Sug")
+                .lastName("Gest")
+                .role(Role.USER)
+                .build());
+        orderService.createOrder(OrderRequest.builder()
+                .deliveryName("Sug Gest")
+                .deliveryEmail(email)
+                .items(List.of(OrderRequest.OrderItemRequest.builder()
+                        .product(new OrderRequest.ProductReference(product.getId()))
+                        .quantity(quantity)
+                        .build()))
+                .build(), email);
+    }
+}
@@ -0,0 +1,151 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.Role;
+import com.backend.smartshop.domain.StripeWebhookEvent;
+import com.backend.smartshop.domain.User;
+import com.backend.smartshop.dto.OrderRequest;
+import com.backend.smartshop.dto.OrderResponse;
+import com.backend.smartshop.dto.PaymentIntentRequest;
+import com.backend.smartshop.dto.PaymentIntentResponse;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.OrderRepository;
+import com.backend.smartshop.repository.StripeWebhookEventRepository;
+import com.backend.smartshop.repository.UserRepository;
+import com.backend.smartshop.service.PaymentGateway.IntentPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checkout against the payment simulator on a real server port: the simulator settles the intent
+ * and posts a signed webhook over HTTP, which must pass Stripe's signature check and mark the
+ * order paid. Every webhook is delivered twice, as Stripe may redeliver.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // Its own database, so this context's schema does not replace the one the other contexts share
+        "spring.datasource.url=jdbc:h2:mem:simulator;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "application.payments.gateway=simulator",
+        "application.stripe.webhook-secret=whsec_simulator_test",
+        "application.payments.simulator.latency-min-ms=0",
+        "application.payments.simulator.latency-max-ms=0",
+        "application.payments.simulator.tail-rate=0",
+        "application.payments.simulator.decline-rate=0",
+        "application.payments.simulator.settle-delay-ms=0",
+        "application.payments.simulator.duplicate-rate=1"
+})
+@ActiveProfiles("test")
+class SimulatedPaymentGatewayTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private StripeService stripeService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StripeWebhookEventRepository webhookEventRepository;
+
+    @Test
+    void simulatedPaymentIsConfirmedThroughTheSignedWebhook() throws Exception {
+        assertThat(paymentGateway).isInstanceOf(SimulatedPaymentGateway.class);
+        OrderResponse order = placeOrder();
+
+        PaymentIntentResponse intent = stripeService.createPaymentIntent(PaymentIntentRequest.builder()
+                .orderId(order.getId())
+                .build());
+
+        waitFor(() -> orderRepository.findById(order.getId()).orElseThrow().getStatus() == OrderStatus.PROCESSING);
+        assertThat(paymentGateway.retrieveIntent(intent.getPaymentIntentId()).status())
+                .isEqualTo(PaymentGateway.IntentStatus.SUCCEEDED);
+        // Both deliveries were accepted by the signature check; the second was dropped as a duplicate
+        List<StripeWebhookEvent> events = webhookEventRepository.findAll().stream()
+                .filter(event -> intent.getPaymentIntentId().equals(event.getPaymentIntentId()))
+                .toList();
+        assertThat(events).singleElement()
+                .satisfies(event -> assertThat(event.getType()).isEqualTo("payment_intent.succeeded"));
+    }
+
+    @Test
+    void intentsAreListedInPagesOfTheRequestedSize() throws Exception {
+        Instant since = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            paymentGateway.createIntent(1000 + i, "ron", null);
+        }
+
+        IntentPage first = paymentGateway.listIntents(since, null, 2);
+        IntentPage second = paymentGateway.listIntents(since, first.nextCursor(), 2);
+
+        assertThat(first.intents()).hasSize(2);
+        assertThat(first.nextCursor()).isNotNull();
+        assertThat(second.intents()).hasSize(1);
+        assertThat(second.nextCursor()).isNull();
+        assertThatThrownBy(() -> paymentGateway.listIntents(since, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private OrderResponse placeOrder() {
+        String email = "simulated-" + System.nanoTime() + "@example.com";
+        userRepository.save(User.builder()
+                .email(email)
+                .password("unused")
+                .firstName("Simu")
+                .lastName("Lated")
+                .role(Role.USER)
+                .build());
+        Product product = productService.createProduct(Product.builder()
+                .name("Simulator Test Phone " + System.nanoTime())
+                .price(new BigDecimal("1099.90"))
+                .stock(3)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+        return orderService.createOrder(OrderRequest.builder()
+                .deliveryName("Simu Lated")
+                .deliveryEmail(email)
+                .items(List.of(OrderRequest.OrderItemRequest.builder()
+                        .product(new OrderRequest.ProductReference(product.getId()))
+                        .quantity(1)
+                        .build()))
+                .build(), email);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waited %d ms", TIMEOUT_MS).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.backend.smartshop.service;
+
+import com.backend.smartshop.domain.Order;
+import com.backend.smartshop.domain.OrderItem;
+import com.backend.smartshop.domain.OrderStatus;
+import com.backend.smartshop.domain.Product;
+import com.backend.smartshop.domain.ReservationStatus;
+import com.backend.smartshop.domain.Role;
+import com.backend.smartshop.domain.StockReservation;
+import com.backend.smartshop.domain.User;
+import com.backend.smartshop.dto.OrderRequest;
+import com.backend.smartshop.dto.OrderResponse;
+import com.backend.smartshop.dto.PaymentIntentRequest;
+import com.backend.smartshop.dto.SalesStats;
+import com.backend.smartshop.repository.BrandRepository;
+import com.backend.smartshop.repository.CategoryRepository;
+import com.backend.smartshop.repository.OrderRepository;
+import com.backend.smartshop.repository.ProductRepository;
+import com.backend.smartshop.repository.ProductStockRepository;
+import com.backend.smartshop.repository.SalesRollupRepository;
+import com.backend.smartshop.repository.StockReservationRepository;
+import com.backend.smartshop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StripeServiceTest {
+
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private StripeService stripeService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SalesStatsService salesStats;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockRepository stockRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private SalesRollupRepository rollupRepository;
+
+    private Product product;
+    private String email;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        product = productService.createProduct(Product.builder()
+                .name("Payment Test Phone " + System.nanoTime())
+                .price(new BigDecimal("1249.90"))
+                .stock(5)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+        email = "payer-" + System.nanoTime() + "@example.com";
+        userRepository.save(User.builder()
+                .email(email)
+                .password("unused")
+                .firstName("Pay")
+                .lastName("Er")
+                .role(Role.USER)
+                .build());
+        when(paymentGateway.createIntent(anyLong(), anyString(), any()))
+                .thenReturn(new PaymentGateway.Intent("pi_test", "pi_test_secret", null,
+                        PaymentGateway.IntentStatus.REQUIRES_PAYMENT));
+    }
+
+    @Test
+    void intentForAnOrderChargesTheStoredTotal() throws Exception {
+        OrderResponse order = placeOrder(2);
+
+        stripeService.createPaymentIntent(PaymentIntentRequest.builder().orderId(order.getId()).build());
+
+        verify(paymentGateway).createIntent(249980L, "ron", order.getId());
+    }
+
+    @Test
+    void intentForAnOrderRejectsADifferentAmount() throws Exception {
+        OrderResponse order = placeOrder(2);
+
+        assertThatThrownBy(() -> stripeService.createPaymentIntent(PaymentIntentRequest.builder()
+                .orderId(order.getId())
+                .amount(new BigDecimal("1.00"))
+                .build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(order.getOrderCode());
+        verify(paymentGateway, never()).createIntent(anyLong(), anyString(), eq(order.getId()));
+    }
+
+    @Test
+    void intentForAnOrderAcceptsTheMatchingAmount() throws Exception {
+        OrderResponse order = placeOrder(1);
+
+        stripeService.createPaymentIntent(PaymentIntentRequest.builder()
+                .orderId(order.getId())
+                .amount(new BigDecimal("1249.9"))
+                .build());
+
+        verify(paymentGateway).createIntent(124990L, "ron", order.getId());
+    }
+
+    @Test
+    void orderIsChargedThePriceReadAtCheckoutNotTheQuoteTable() throws Exception {
+        // Written behind the catalog's back, so the in-memory quote table still has the old price
+        product.setPrice(new BigDecimal("1299.90"));
+        productRepository.save(product);
+
+        OrderResponse order = placeOrder(1);
+        stripeService.createPaymentIntent(PaymentIntentRequest.builder().orderId(order.getId()).build());
+
+        assertThat(order.getItems().get(0).getPrice()).isEqualByComparingTo("1299.90");
+        verify(paymentGateway).createIntent(129990L, "ron", order.getId());
+    }
+
+    @Test
+    void intentWithoutAnOrderIsRejected() throws Exception {
+        assertThatThrownBy(() -> stripeService.createPaymentIntent(PaymentIntentRequest.builder()
+                .amount(new BigDecimal("100.00"))
+                .build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(paymentGateway, never()).createIntent(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void intentForAnOrderBelowTheFreeShippingThresholdChargesShipping() throws Exception {
+        Product cable = productService.createProduct(Product.builder()
+                .name("Payment Test Cable " + System.nanoTime())
+                .price(new BigDecimal("49.90"))
+                .stock(5)
+                .category(categoryRepository.findAll().get(0))
+                .brand(brandRepository.findAll().get(0))
+                .build());
+        OrderResponse order = orderService.createOrder(OrderRequest.builder()
+                .deliveryName("Pay Er")
+                .deliveryEmail(email)
+                .items(List.of(OrderRequest.OrderItemRequest.builder()
+                        .product(new OrderRequest.ProductReference(cable.getId()))
+                        .quantity(2)
+                        .build()))
+                .build(), email);
+        assertThat(order.getShippingCost()).isEqualByComparingTo("25");
+        assertThat(order.getTotal()).isEqualByComparingTo("124.80");
+
+        stripeService.createPaymentIntent(PaymentIntentRequest.builder().orderId(order.getId()).build());
+
+        verify(paymentGateway).createIntent(12480L, "ron", order.getId());
+    }
+
+    @Test
+    void intentForAnOrderNoLongerPendingIsRejected() throws Exception {
+        OrderResponse order = placeOrder(1);
+        stripeService.markFailed(order.getId());
+
+        assertThatThrownBy(() -> stripeService.createPaymentIntent(PaymentIntentRequest.builder()
+                .orderId(order.getId())
+                .build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(paymentGateway, never()).createIntent(anyLong(), anyString(), eq(order.getId()));
+    }
+
+    @Test
+    void declinedPaymentLeavesTheOrderOpenForAnotherAttempt() throws Exception {
+        OrderResponse order = placeOrder(2);
+        when(paymentGateway.retrieveIntent("pi_declined")).thenReturn(new PaymentGateway.Intent("pi_declined",
+                "pi_declined_secret", order.getId(), PaymentGateway.IntentStatus.REQUIRES_PAYMENT));
+
+        stripeService.handlePaymentFailure("pi_declined");
+
+        assertThat(statusOf(order)).isEqualTo(OrderStatus.PENDING);
+        assertThat(reservedQuantity(order, ReservationStatus.ACTIVE)).isEqualTo(2);
+    }
+
+    @Test
+    void cancelledPaymentCancelsTheOrder() throws Exception {
+        OrderResponse order = placeOrder(2);
+        when(paymentGateway.retrieveIntent("pi_canceled")).thenReturn(new PaymentGateway.Intent("pi_canceled",
+                "pi_canceled_secret", order.getId(), PaymentGateway.IntentStatus.FAILED));
+
+        stripeService.handlePaymentFailure("pi_canceled");
+
+        assertThat(statusOf(order)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(stockOf(product)).isEqualTo(5);
+    }
+
+    @Test
+    void paymentForAPendingOrderSellsItsReservedStock() {
+        OrderResponse order = placeOrder(2);
+
+        stripeService.markPaid(order.getId());
+
+        assertThat(statusOf(order)).isEqualTo(OrderStatus.PROCESSING);
+        assertThat(stockOf(product)).isEqualTo(3);
+        assertThat(reservedQuantity(order, ReservationStatus.COMMITTED)).isEqualTo(2);
+    }
+
+    @Test
+    void latePaymentRevivesACancelledOrderWhileStockLasts() {
+        OrderResponse order = placeOrder(2);
+        stripeService.markFailed(order.getId());
+        assertThat(stockOf(product)).isEqualTo(5);
+
+        stripeService.markPaid(order.getId());
+        stripeService.markPaid(order.getId());
+
+        assertThat(statusOf(order)).isEqualTo(OrderStatus.PROCESSING);
+        assertThat(stockOf(product)).isEqualTo(3);
+        assertThat(reservedQuantity(order, ReservationStatus.COMMITTED)).isEqualTo(2);
+        assertThat(reservedQuantity(order, ReservationStatus.ACTIVE)).isZero();
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getRefundRequiredAt()).isNull();
+    }
+
+    @Test
+    void latePaymentAfterTheStockSoldOutLeavesTheOrderCancelledForARefund() {
+        OrderResponse order = placeOrder(5);
+        stripeService.markFailed(order.getId());
+        OrderResponse laterBuyer = placeOrder(5);
+        stripeService.markPaid(laterBuyer.getId());
+
+        stripeService.markPaid(order.getId());
+
+        assertThat(statusOf(order)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getRefundRequiredAt()).isNotNull();
+        assertThat(stockOf(product)).isZero();
+        assertThat(reservedQuantity(order, ReservationStatus.ACTIVE)).isZero();
+        assertThat(reservedQuantity(order, ReservationStatus.COMMITTED)).isZero();
+
+        // A redelivered webhook does not revive it once stock is back
+        stockRepository.increment(Map.of(product.getId(), 5));
+        stripeService.markPaid(order.getId());
+        assertThat(statusOf(order)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(stockOf(product)).isEqualTo(5);
+    }
+
+    @Test
+    void batchCancellationSubtractsSalesWithoutLoadingOrderLines() {
+        List<Long> orderIds = List.of(placeOrder(1).getId(), placeOrder(1).getId(), placeOrder(3).getId());
+        LocalDate today = LocalDate.now();
+        SalesStats before = salesStats.getStats(today, today);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        assertThat(stripeService.markAllFailed(orderIds)).containsExactlyInAnyOrderElementsOf(orderIds);
+
+        // Lines are summed by one aggregate query while the orders are locked, never loaded per order
+        assertThat(statistics.getCollectionStatistics(Order.class.getName() + ".items").getFetchCount()).isZero();
+        assertThat(statistics.getEntityStatistics(OrderItem.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityStatistics(Product.class.getName()).getLoadCount()).isZero();
+        SalesStats after = salesStats.getStats(today, today);
+        assertThat(before.getOrders() - after.getOrders()).isEqualTo(3);
+        assertThat(before.getUnits() - after.getUnits()).isEqualTo(5);
+        assertThat(before.getRevenue().subtract(after.getRevenue()))
+                .isEqualByComparingTo(product.getPrice().multiply(BigDecimal.valueOf(5)));
+        assertThat(stockOf(product)).isEqualTo(5);
+    }
+
+    @Test
+    void todaysStatsSumTheSlotsWrittenByEveryNode() {
+        LocalDate today = LocalDate.now();
+        SalesStats before = salesStats.getToday();
+
+        placeOrder(1);
+        placeOrder(2);
+        // Another node's checkout, landing in a slot of its own
+        rollupRepository.addStatus(today, 7, OrderStatus.PENDING, 1);
+
+        SalesStats after = salesStats.getToday();
+        assertThat(after.getOrders() - before.getOrders()).isEqualTo(3);
+        assertThat(after.getUnits() - before.getUnits()).isEqualTo(3);
+        assertThat(after).usingRecursiveComparison().isEqualTo(salesStats.getStats(today, today));
+    }
+
+    private OrderStatus statusOf(OrderResponse order) {
+        return orderRepository.findStatusById(order.getId()).orElseThrow();
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    private int reservedQuantity(OrderResponse order, ReservationStatus status) {
+        return reservationRepository.findByOrderIdAndStatus(order.getId(), status).stream()
+                .mapToInt(StockReservation::getQuantity)
+                .sum();
+    }
+
+    private OrderResponse placeOrder(int quantity) {
+        OrderResponse order = orderService.createOrder(OrderRequest.builder()
+                .deliveryName("Pay Er")
+                .deliveryEmail(email)
+                .items(List.of(OrderRequest.OrderItemRequest.builder()
+                        .product(new OrderRequest.ProductReference(product.getId()))
+                        .quantity(quantity)
+                        .build()))
+                .build(), email);
+        // Above the free shipping threshold, so the total is the lines alone
+        assertThat(order.getShippingCost()).isZero();
+        assertThat(order.getTotal()).isEqualByComparingTo(product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        return order;
+    }
+}
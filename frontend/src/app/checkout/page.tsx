@@ -42,6 +42,7 @@ export default function CheckoutPage() {
   const { user, token } = useAuth();
   const [step, setStep] = useState(1);
   const [clientSecret, setClientSecret] = useState<string | null>(null);
+  const [orderCode, setOrderCode] = useState<string | null>(null);
   const [loading, setLoading] = useState(false);
   const [deliveryDetails, setDeliveryDetails] = useState<DeliveryDetails>({
     firstName: user?.firstName || "",
@@ -70,31 +71,17 @@ export default function CheckoutPage() {
 
   const handleDeliverySubmit = async (e: React.FormEvent) => {
     e.preventDefault();
-    setLoading(true);
-
-    try {
-      const response = await api.payments.createPaymentIntent({
-        amount: finalTotal, // Send in base currency (RON), backend will convert to cents
-        currency: "ron",
-      }); // No token needed since endpoint is permitAll
-      setClientSecret(response.clientSecret);
-      setStep(2);
-    } catch (error) {
-      console.error("Error creating payment intent:", error);
-    } finally {
-      setLoading(false);
-    }
-  };
-
-  const handlePaymentSuccess = async (paymentIntentId: string) => {
     if (!token) {
       console.error("Error: User not authenticated. Please log in to complete the order.");
       router.push("/login?redirect=/checkout");
       return;
     }
+    setLoading(true);
 
     try {
-      await api.orders.create({
+      // The order is placed first so its stock is reserved and the payment intent is linked to it;
+      // the intent charges the order's stored total
+      const order = await api.orders.create({
         items: items.map((item) => ({
           product: { id: item.id },
           quantity: item.quantity,
@@ -111,13 +98,26 @@ export default function CheckoutPage() {
         deliveryCountry: "Romania", // Default to Romania
         deliveryNotes: deliveryDetails.notes,
       }, token);
-      clearCart();
-      router.push(`/checkout/success?payment_intent=${paymentIntentId}`);
+      const response = await api.payments.createPaymentIntent({
+        orderId: order.id,
+        currency: "ron",
+      }, token);
+      setOrderCode(order.orderCode);
+      setClientSecret(response.clientSecret);
+      setStep(2);
     } catch (error) {
-      console.error("Error creating order:", error);
+      console.error("Error placing order:", error);
+    } finally {
+      setLoading(false);
     }
   };
 
+  const handlePaymentSuccess = (paymentIntentId: string) => {
+    // The order is marked paid by the payment webhook
+    clearCart();
+    router.push(`/checkout/success?payment_intent=${paymentIntentId}&order=${orderCode}`);
+  };
+
   if (items.length === 0) {
     return (
       <main className="min-h-screen bg-slate-50 pt-24">
@@ -1,6 +1,6 @@
 "use client";
 
-import { useEffect, useState, Suspense } from "react";
+import { Suspense } from "react";
 import { useSearchParams } from "next/navigation";
 import Link from "next/link";
 import { motion } from "framer-motion";
@@ -17,13 +17,7 @@ import {
 function CheckoutSuccessContent() {
   const searchParams = useSearchParams();
   const paymentIntent = searchParams.get("payment_intent");
-  const [orderCode, setOrderCode] = useState<string | null>(null);
-
-  useEffect(() => {
-    // Generate a random order code for display purposes
-    const code = `SM${Date.now().toString(36).toUpperCase()}`;
-    setOrderCode(code);
-  }, []);
+  const orderCode = searchParams.get("order");
 
   return (
     <main className="min-h-screen bg-slate-50 pt-24">
@@ -64,6 +64,51 @@ async function request<T>(
   return JSON.parse(text);
 }
 
+// EventSource cannot send the Authorization header, so the stream is read through fetch.
+// Calls onStatus for every status event; the returned function closes the stream.
+function streamOrderStatus(
+  orderCode: string,
+  token: string,
+  onStatus: (update: OrderStatusUpdate) => void
+): () => void {
+  const controller = new AbortController();
+
+  (async () => {
+    const response = await fetch(`${API_URL}/orders/code/${orderCode}/events`, {
+      headers: { Authorization: `Bearer ${token}`, Accept: "text/event-stream" },
+      signal: controller.signal,
+    });
+    if (!response.ok || !response.body) {
+      return;
+    }
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+    let buffer = "";
+    for (;;) {
+      const { value, done } = await reader.read();
+      if (done) {
+        return;
+      }
+      buffer += value;
+      const events = buffer.split("\n\n");
+      buffer = events.pop() ?? "";
+      for (const event of events) {
+        const data = event
+          .split("\n")
+          .filter((line) => line.startsWith("data:"))
+          .map((line) => line.slice(5))
+          .join("\n");
+        if (data) {
+          onStatus(JSON.parse(data));
+        }
+      }
+    }
+  })().catch(() => {
+    // Aborted or disconnected; callers fall back to getByCode
+  });
+
+  return () => controller.abort();
+}
+
 interface AuthResponse {
   token: string;
 }
@@ -129,9 +174,31 @@ export interface OrderResponse {
   deliveryPostalCode: string;
   deliveryCountry: string;
   deliveryNotes: string;
+  shippingCost?: number;
+  refundRequiredAt?: string;
   items: OrderItemResponse[];
 }
 
+export interface OrderSummary {
+  id: number;
+  orderCode: string;
+  createdAt: string;
+  status: string;
+  total: number;
+  itemCount: number;
+}
+
+export interface OrderStatusUpdate {
+  orderId: number;
+  orderCode: string;
+  status: string;
+}
+
+export interface OrderSummaryPage {
+  items: OrderSummary[];
+  nextCursor: string | null;
+}
+
 export interface OrderItemResponse {
   id: number;
   productName: string;
@@ -140,6 +207,19 @@ export interface OrderItemResponse {
   subtotal: number;
 }
 
+export interface CartQuoteLine {
+  productId: number;
+  productName: string;
+  quantity: number;
+  unitPrice: number;
+  subtotal: number;
+}
+
+export interface CartQuote {
+  lines: CartQuoteLine[];
+  total: number;
+}
+
 export const api = {
   auth: {
     register: (data: { firstName: string; lastName: string; email: string; password: string }) =>
@@ -162,14 +242,20 @@ export const api = {
     getAll: () => request<Brand[]>("/brands"),
     getById: (id: string) => request<Brand>(`/brands/${id}`),
   },
+  cart: {
+    quote: (items: { productId: number; quantity: number }[]) =>
+      request<CartQuote>("/cart/quote", "POST", { items }),
+  },
   orders: {
     create: (data: unknown, token: string) => request<OrderResponse>("/orders", "POST", data, token),
-    getMyOrders: (token: string) => request<OrderResponse[]>("/orders", "GET", undefined, token),
+    getMyOrders: (token: string, cursor?: string) =>
+      request<OrderSummaryPage>(`/orders${cursor ? `?cursor=${encodeURIComponent(cursor)}` : ""}`, "GET", undefined, token),
     getById: (id: number, token: string) => request<OrderResponse>(`/orders/${id}`, "GET", undefined, token),
     getByCode: (orderCode: string, token: string) => request<OrderResponse>(`/orders/code/${orderCode}`, "GET", undefined, token),
+    subscribeToStatus: streamOrderStatus,
   },
   payments: {
-    createPaymentIntent: (data: { orderId?: number; amount: number; currency?: string }, token?: string) =>
+    createPaymentIntent: (data: { orderId: number; currency?: string }, token?: string) =>
       request<{ clientSecret: string; paymentIntentId: string }>("/payments/create-payment-intent", "POST", data, token),
     confirmSuccess: (paymentIntentId: string, token: string) =>
       request(`/payments/success?paymentIntentId=${paymentIntentId}`, "POST", undefined, token),